@@ -0,0 +1,222 @@
+package com.performance.test.common.profiling;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import com.sun.management.ThreadMXBean;
+
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Allocation and GC profile of one timed run.
+ *
+ * Allocation is attributed to the role of the thread that did it. Pooled tasks are wrapped with
+ * {@link #track}, which measures the thread only while the task runs, so pool threads that alternate
+ * between producer and consumer tasks are split correctly. Dedicated threads, such as Disruptor event
+ * processors, are created through {@link #threadFactory} and measured from creation until {@link #stop()}.
+ * The harness is the thread that calls {@link #start()} and {@link #stop()}.
+ *
+ * GC activity is taken from {@link GarbageCollectorMXBean} notifications for collections that started
+ * inside the window.
+ */
+public class RunProfiler {
+
+    public enum Role {
+        PRODUCER,
+        CONSUMER,
+        HARNESS
+    }
+
+    private final ThreadMXBean threadBean = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private final Map<Role, LongAdder> allocatedBytes = new EnumMap<>(Role.class);
+    private final Map<Long, Role> dedicatedThreads = new ConcurrentHashMap<>();
+    private final Map<String, GcTotals> gcTotals = new TreeMap<>();
+    private final List<NotificationEmitter> emitters = new ArrayList<>();
+    private final NotificationListener gcListener = this::onGcNotification;
+
+    private long harnessThreadId;
+    private long harnessStartBytes;
+    // Read by the JMX notification thread
+    private volatile long windowStartUptime;
+    private volatile long windowEndUptime = Long.MAX_VALUE;
+    private long startNanos;
+    private long durationNanos;
+    private long expectedCollections;
+    // Every collection notified since the listeners were added, inside the window or not, guarded by gcTotals
+    private long notifiedCollections;
+    private boolean started;
+    private boolean stopped;
+
+    public RunProfiler() {
+        if (!threadBean.isThreadAllocatedMemorySupported()) {
+            throw new IllegalStateException("This JVM does not report per-thread allocation");
+        }
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+        for (Role role : Role.values()) {
+            allocatedBytes.put(role, new LongAdder());
+        }
+    }
+
+    /** Opens the measurement window on the calling thread, which is counted as the harness. */
+    public RunProfiler start() {
+        if (started) {
+            throw new IllegalStateException("The profiler has already been started");
+        }
+        started = true;
+        harnessThreadId = Thread.currentThread().getId();
+        harnessStartBytes = threadBean.getThreadAllocatedBytes(harnessThreadId);
+        // Open the window before the listeners are added so no notification sees it unset
+        windowStartUptime = ManagementFactory.getRuntimeMXBean().getUptime();
+        startNanos = System.nanoTime();
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (gc instanceof NotificationEmitter) {
+                NotificationEmitter emitter = (NotificationEmitter) gc;
+                emitter.addNotificationListener(gcListener, null, null);
+                emitters.add(emitter);
+            }
+            expectedCollections -= gc.getCollectionCount();
+        }
+        return this;
+    }
+
+    /**
+     * Closes the window. Must be called from the thread that called {@link #start()}; calls after the
+     * first, or before {@code start()}, do nothing.
+     */
+    public void stop() {
+        if (!started || stopped) {
+            return;
+        }
+        stopped = true;
+        durationNanos = System.nanoTime() - startNanos;
+        windowEndUptime = ManagementFactory.getRuntimeMXBean().getUptime();
+        allocatedBytes.get(Role.HARNESS).add(threadBean.getThreadAllocatedBytes(harnessThreadId) - harnessStartBytes);
+        for (Map.Entry<Long, Role> thread : dedicatedThreads.entrySet()) {
+            long bytes = threadBean.getThreadAllocatedBytes(thread.getKey());
+            if (bytes > 0) {
+                allocatedBytes.get(thread.getValue()).add(bytes);
+            }
+        }
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            expectedCollections += gc.getCollectionCount();
+        }
+        awaitGcNotifications();
+        for (NotificationEmitter emitter : emitters) {
+            try {
+                emitter.removeNotificationListener(gcListener);
+            } catch (ListenerNotFoundException e) {
+                // Already removed
+            }
+        }
+    }
+
+    /** Wraps a task so that what it allocates is counted for the given role. */
+    public Runnable track(Role role, Runnable task) {
+        return () -> {
+            long threadId = Thread.currentThread().getId();
+            long before = threadBean.getThreadAllocatedBytes(threadId);
+            try {
+                task.run();
+            } finally {
+                allocatedBytes.get(role).add(threadBean.getThreadAllocatedBytes(threadId) - before);
+            }
+        };
+    }
+
+    /** Counts everything allocated by threads of this factory for the given role. They must outlive the window. */
+    public ThreadFactory threadFactory(Role role, ThreadFactory delegate) {
+        return runnable -> {
+            Thread thread = delegate.newThread(runnable);
+            dedicatedThreads.put(thread.getId(), role);
+            return thread;
+        };
+    }
+
+    private void onGcNotification(Notification notification, Object handback) {
+        if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+            return;
+        }
+        GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+        long startTime = info.getGcInfo().getStartTime();
+        synchronized (gcTotals) {
+            if (startTime >= windowStartUptime && startTime <= windowEndUptime) {
+                gcTotals.computeIfAbsent(info.getGcName(), name -> new GcTotals()).add(info.getGcInfo().getDuration());
+            }
+            notifiedCollections++;
+            gcTotals.notifyAll();
+        }
+    }
+
+    /*
+     * Notifications arrive on a JMX thread after the collection, so wait briefly for the ones still in flight.
+     * The collection counts include collections that were already running when the window opened, which the
+     * window filter drops, so progress is measured against every notification received rather than the
+     * ones kept.
+     */
+    private void awaitGcNotifications() {
+        long deadline = System.currentTimeMillis() + 1_000;
+        synchronized (gcTotals) {
+            long remaining;
+            while (notifiedCollections < expectedCollections && (remaining = deadline - System.currentTimeMillis()) > 0) {
+                try {
+                    gcTotals.wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    public long getAllocatedBytes(Role role) {
+        return allocatedBytes.get(role).sum();
+    }
+
+    public String summary(long messageCount) {
+        StringBuilder sb = new StringBuilder(String.format("Profile over %.2f s, %d messages%n", durationNanos / 1e9, messageCount));
+        long total = 0;
+        for (Role role : Role.values()) {
+            long bytes = getAllocatedBytes(role);
+            total += bytes;
+            sb.append(String.format("  %-9s allocated %10.1f MB, %8.1f bytes/message%n", role.name().toLowerCase(),
+                    bytes / (1024.0 * 1024.0), (double) bytes / messageCount));
+        }
+        sb.append(String.format("  %-9s allocated %10.1f MB, %8.1f bytes/message%n", "total",
+                total / (1024.0 * 1024.0), (double) total / messageCount));
+        synchronized (gcTotals) {
+            if (gcTotals.isEmpty()) {
+                sb.append("  no garbage collections").append(System.lineSeparator());
+            }
+            for (Map.Entry<String, GcTotals> gc : gcTotals.entrySet()) {
+                GcTotals totals = gc.getValue();
+                sb.append(String.format("  %-20s %6d collections, %8d ms total, %6d ms max%n", gc.getKey(),
+                        totals.count, totals.totalMillis, totals.maxMillis));
+            }
+        }
+        return sb.toString();
+    }
+
+    private static class GcTotals {
+        long count;
+        long totalMillis;
+        long maxMillis;
+
+        void add(long durationMillis) {
+            count++;
+            totalMillis += durationMillis;
+            maxMillis = Math.max(maxMillis, durationMillis);
+        }
+    }
+}
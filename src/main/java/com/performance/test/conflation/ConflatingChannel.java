@@ -0,0 +1,88 @@
+package com.performance.test.conflation;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Keeps only the latest value per key, for consumers that need current state rather than every update,
+ * such as order status fan-out keyed by orderId.
+ *
+ * Producers overwrite the slot of the key and, if the key is not already pending, append it to a queue
+ * of dirty keys. A key is in that queue at most once at a time, so the queue never holds more entries
+ * than there are keys and never overflows. A drain only processes the keys queued when it started,
+ * so each key is delivered at most once per drain, with the value current at delivery time.
+ *
+ * Any number of threads may publish. Exactly one thread may drain; it never waits for a producer, so a
+ * producer preempted halfway through an append only delays that key to a later drain.
+ */
+public class ConflatingChannel<T> {
+
+    public interface UpdateHandler<T> {
+        void onUpdate(int key, T value);
+    }
+
+    private final AtomicReferenceArray<T> latest;
+    // 1 while the key is in the dirty-key queue
+    private final AtomicIntegerArray pending;
+    // Queue entries are key + 1, so that 0 marks a free or not yet written slot
+    private final AtomicIntegerArray dirtyKeys;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private long head;
+
+    /** A channel for keys in {@code [0, keyCount)}. */
+    public ConflatingChannel(int keyCount) {
+        if (keyCount < 1) {
+            throw new IllegalArgumentException("keyCount must be positive, was " + keyCount);
+        }
+        int capacity = Integer.highestOneBit(keyCount);
+        if (capacity < keyCount) {
+            capacity <<= 1;
+        }
+        this.latest = new AtomicReferenceArray<>(keyCount);
+        this.pending = new AtomicIntegerArray(keyCount);
+        this.dirtyKeys = new AtomicIntegerArray(capacity);
+        this.mask = capacity - 1;
+    }
+
+    public void publish(int key, T value) {
+        latest.set(key, value);
+        // Hot keys are usually still pending, so check before paying for the CAS
+        if (pending.get(key) == 0 && pending.compareAndSet(key, 0, 1)) {
+            int index = (int) (tail.getAndIncrement() & mask);
+            dirtyKeys.lazySet(index, key + 1);
+        }
+    }
+
+    /** Delivers every key that was dirty when the drain started and returns how many were delivered. */
+    public int drain(UpdateHandler<T> handler) {
+        long limit = tail.get();
+        int delivered = 0;
+        while (head < limit) {
+            int index = (int) (head & mask);
+            int entry = dirtyKeys.get(index);
+            if (entry == 0) {
+                // Claimed by a producer that has not written it yet
+                break;
+            }
+            dirtyKeys.lazySet(index, 0);
+            head++;
+            int key = entry - 1;
+            // Clear before reading the value: an update that the read misses will then queue the key again
+            pending.set(key, 0);
+            handler.onUpdate(key, latest.get(key));
+            delivered++;
+        }
+        return delivered;
+    }
+
+    /** True if no key is pending. Only meaningful on the draining thread. */
+    public boolean isEmpty() {
+        return head == tail.get();
+    }
+
+    public int getKeyCount() {
+        return latest.length();
+    }
+}
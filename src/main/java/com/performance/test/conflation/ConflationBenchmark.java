@@ -0,0 +1,191 @@
+package com.performance.test.conflation;
+
+import com.lmax.disruptor.EventHandler;
+import com.lmax.disruptor.RingBuffer;
+import com.lmax.disruptor.YieldingWaitStrategy;
+import com.lmax.disruptor.dsl.Disruptor;
+import com.lmax.disruptor.dsl.ProducerType;
+import com.lmax.disruptor.util.DaemonThreadFactory;
+import com.performance.test.common.models.Order;
+import com.performance.test.common.models.OrderMessage;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static com.performance.test.common.CommonConstants.RING_BUFFER_SIZE;
+
+/**
+ * Compares a slow consumer reading every update from the ring with one reading a {@link ConflatingChannel},
+ * on a paced stream of order updates whose orderIds follow a Zipf distribution.
+ *
+ * Each update carries its position in the stream as the order quantity, so the consumer can look up when
+ * it was due. Staleness is the time from then to the moment the consumer processes it. Both
+ * paths check that the consumer ends with the latest update of every orderId.
+ * Usage: {@code ConflationBenchmark [updates] [orderIds] [zipfExponent] [consumerNanosPerUpdate] [updatesPerSecond]}.
+ */
+public class ConflationBenchmark {
+
+    public static void main(String[] args) {
+        int updates = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        int keys = args.length > 1 ? Integer.parseInt(args[1]) : 10_000;
+        double exponent = args.length > 2 ? Double.parseDouble(args[2]) : 1.0;
+        long workNanos = args.length > 3 ? Long.parseLong(args[3]) : 500;
+        long rate = args.length > 4 ? Long.parseLong(args[4]) : 1_000_000;
+
+        int[] stream = zipfStream(updates, keys, exponent, new Random(42));
+        int[] expected = new int[keys];
+        Arrays.fill(expected, -1);
+        for (int i = 0; i < updates; i++) {
+            expected[stream[i]] = i;
+        }
+        System.out.println(String.format("%d updates over %d orderIds (Zipf %.2f, %d distinct), %d updates/s, consumer %d ns/update",
+                updates, keys, exponent, Arrays.stream(expected).filter(e -> e >= 0).count(), rate, workNanos));
+
+        // Warm up both paths on a shorter stream
+        int[] warmupStream = Arrays.copyOf(stream, Math.min(updates, 200_000));
+        runRing(warmupStream, keys, workNanos, rate);
+        runConflating(warmupStream, keys, workNanos, rate);
+
+        report("Ring", runRing(stream, keys, workNanos, rate), expected);
+        report("Conflating", runConflating(stream, keys, workNanos, rate), expected);
+    }
+
+    private static Run runRing(int[] stream, int keys, long workNanos, long rate) {
+        Run run = new Run(stream.length, keys, workNanos);
+        Disruptor<OrderMessage> disruptor = new Disruptor<>(
+                OrderMessage.EVENT_FACTORY,
+                RING_BUFFER_SIZE,
+                DaemonThreadFactory.INSTANCE,
+                ProducerType.SINGLE,
+                new YieldingWaitStrategy());
+        disruptor.handleEventsWith((EventHandler<OrderMessage>) (message, sequence, endOfBatch) -> {
+            Order order = message.getOrder();
+            message.clear();
+            run.process(order.getOrderId(), order);
+        });
+        disruptor.start();
+
+        RingBuffer<OrderMessage> ringBuffer = disruptor.getRingBuffer();
+        run.start = System.nanoTime();
+        long interval = 1_000_000_000L / rate;
+        for (int i = 0; i < stream.length; i++) {
+            Order order = pace(run, i, interval, stream[i]);
+            long sequence = ringBuffer.next();
+            ringBuffer.get(sequence).setOrder(order);
+            ringBuffer.publish(sequence);
+        }
+        disruptor.shutdown();
+        run.end = System.nanoTime();
+        return run;
+    }
+
+    private static Run runConflating(int[] stream, int keys, long workNanos, long rate) {
+        Run run = new Run(stream.length, keys, workNanos);
+        ConflatingChannel<Order> channel = new ConflatingChannel<>(keys);
+        boolean[] producerDone = new boolean[1];
+        ExecutorService executor = Executors.newSingleThreadExecutor(DaemonThreadFactory.INSTANCE);
+        CompletableFuture<Void> consumer = CompletableFuture.runAsync(() -> {
+            while (true) {
+                if (channel.drain(run::process) == 0) {
+                    synchronized (producerDone) {
+                        if (producerDone[0] && channel.isEmpty()) {
+                            return;
+                        }
+                    }
+                    Thread.yield();
+                }
+            }
+        }, executor);
+
+        run.start = System.nanoTime();
+        long interval = 1_000_000_000L / rate;
+        for (int i = 0; i < stream.length; i++) {
+            channel.publish(stream[i], pace(run, i, interval, stream[i]));
+        }
+        synchronized (producerDone) {
+            producerDone[0] = true;
+        }
+        consumer.join();
+        run.end = System.nanoTime();
+        executor.shutdown();
+        return run;
+    }
+
+    /**
+     * Waits for the scheduled time of update {@code i} and returns it as an order. Staleness is measured from
+     * the scheduled time, so time the producer spends blocked on a full ring counts against the ring.
+     */
+    private static Order pace(Run run, int i, long interval, int orderId) {
+        long due = run.start + i * interval;
+        while (System.nanoTime() < due) {
+            Thread.onSpinWait();
+        }
+        run.publishNanos[i] = due;
+        Order order = new Order();
+        order.setOrderId(orderId);
+        order.setQuantity(i);
+        return order;
+    }
+
+    private static void report(String name, Run run, int[] expected) {
+        if (!Arrays.equals(run.lastSeen, expected)) {
+            throw new IllegalStateException(name + ": consumer did not end with the latest update of every orderId");
+        }
+        long[] staleness = Arrays.copyOf(run.staleness, run.processed);
+        Arrays.sort(staleness);
+        System.out.println(String.format("%-10s : %d updates processed (%.1f %% of stream), caught up after %.2f s, "
+                        + "staleness p50 %.1f us, p99 %.1f us, max %.1f us",
+                name, run.processed, run.processed * 100.0 / run.publishNanos.length, (run.end - run.start) / 1e9,
+                staleness[staleness.length / 2] / 1e3, staleness[(int) (staleness.length * 0.99)] / 1e3,
+                staleness[staleness.length - 1] / 1e3));
+    }
+
+    /** Draws orderIds so that the id of rank r is chosen with probability proportional to 1 / (r + 1)^exponent. */
+    static int[] zipfStream(int updates, int keys, double exponent, Random random) {
+        double[] cumulative = new double[keys];
+        double total = 0;
+        for (int k = 0; k < keys; k++) {
+            total += 1 / Math.pow(k + 1, exponent);
+            cumulative[k] = total;
+        }
+        int[] stream = new int[updates];
+        for (int i = 0; i < updates; i++) {
+            int index = Arrays.binarySearch(cumulative, random.nextDouble() * total);
+            stream[i] = Math.min(keys - 1, index >= 0 ? index : -index - 1);
+        }
+        return stream;
+    }
+
+    /** State of one run, written by the producer thread before start and by the consumer thread during it. */
+    private static class Run {
+        final long[] publishNanos;
+        final long[] staleness;
+        final int[] lastSeen;
+        final long workNanos;
+        int processed;
+        long start;
+        long end;
+
+        Run(int updates, int keys, long workNanos) {
+            this.publishNanos = new long[updates];
+            this.staleness = new long[updates];
+            this.lastSeen = new int[keys];
+            Arrays.fill(lastSeen, -1);
+            this.workNanos = workNanos;
+        }
+
+        void process(int orderId, Order order) {
+            long now = System.nanoTime();
+            int update = (int) order.getQuantity();
+            staleness[processed++] = now - publishNanos[update];
+            lastSeen[orderId] = update;
+            long deadline = now + workNanos;
+            while (System.nanoTime() < deadline) {
+                Thread.onSpinWait();
+            }
+        }
+    }
+}
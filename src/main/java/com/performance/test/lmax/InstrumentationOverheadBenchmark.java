@@ -0,0 +1,82 @@
+package com.performance.test.lmax;
+
+import com.lmax.disruptor.YieldingWaitStrategy;
+import com.lmax.disruptor.dsl.Disruptor;
+import com.lmax.disruptor.dsl.ProducerType;
+import com.lmax.disruptor.util.DaemonThreadFactory;
+import com.performance.test.common.CommonConstants;
+import com.performance.test.common.models.OrderMessage;
+import com.performance.test.lmax.consumer.LMaxOrderConsumer;
+import com.performance.test.lmax.metrics.DisruptorMetrics;
+import com.performance.test.lmax.metrics.MetricsSnapshot;
+import com.performance.test.lmax.producer.LMaxOrderProducer;
+
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static com.performance.test.common.CommonConstants.RING_BUFFER_SIZE;
+
+/**
+ * Compares throughput of the plain and the instrumented Disruptor pipeline. The instrumented runs also
+ * take a snapshot every 10 ms from another thread, as JMX or the reporter would.
+ * Usage: {@code InstrumentationOverheadBenchmark [messageCount] [repetitions]}.
+ */
+public class InstrumentationOverheadBenchmark {
+
+    public static void main(String[] args) {
+        CommonConstants.MESSAGE_COUNT = args.length > 0 ? Integer.parseInt(args[0]) : CommonConstants.FIFTY_MILLION;
+        int repetitions = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        // Warm up both paths
+        run(false);
+        run(true);
+
+        double[] plain = new double[repetitions];
+        double[] instrumented = new double[repetitions];
+        for (int i = 0; i < repetitions; i++) {
+            plain[i] = run(false);
+            instrumented[i] = run(true);
+        }
+        Arrays.sort(plain);
+        Arrays.sort(instrumented);
+        double plainMedian = plain[repetitions / 2];
+        double instrumentedMedian = instrumented[repetitions / 2];
+        System.out.println(String.format("Plain        : median %.1f M msg/s, best %.1f M msg/s",
+                plainMedian / 1e6, plain[repetitions - 1] / 1e6));
+        System.out.println(String.format("Instrumented : median %.1f M msg/s, best %.1f M msg/s",
+                instrumentedMedian / 1e6, instrumented[repetitions - 1] / 1e6));
+        System.out.println(String.format("Overhead     : %.2f %%", (plainMedian - instrumentedMedian) / plainMedian * 100));
+    }
+
+    /** Publishes MESSAGE_COUNT orders and waits until they are consumed, returning messages per second. */
+    private static double run(boolean instrumented) {
+        Disruptor<OrderMessage> disruptor = new Disruptor<>(
+                OrderMessage.EVENT_FACTORY,
+                RING_BUFFER_SIZE,
+                DaemonThreadFactory.INSTANCE,
+                ProducerType.SINGLE,
+                new YieldingWaitStrategy());
+        DisruptorMetrics metrics = instrumented ? new DisruptorMetrics(disruptor.getRingBuffer()) : null;
+        LMaxOrderConsumer consumer = new LMaxOrderConsumer(metrics);
+        disruptor.handleEventsWith(consumer);
+        ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor(DaemonThreadFactory.INSTANCE);
+        MetricsSnapshot[] last = new MetricsSnapshot[1];
+        if (metrics != null) {
+            metrics.trackHandler("orders", () -> disruptor.getSequenceValueFor(consumer));
+            sampler.scheduleAtFixedRate(() -> last[0] = metrics.snapshot(), 10, 10, TimeUnit.MILLISECONDS);
+        }
+        disruptor.start();
+
+        long start = System.nanoTime();
+        new LMaxOrderProducer(disruptor.getRingBuffer(), metrics).publishOrders();
+        disruptor.shutdown();
+        long duration = System.nanoTime() - start;
+        sampler.shutdownNow();
+        if (metrics != null && metrics.getConsumedCount() != CommonConstants.MESSAGE_COUNT) {
+            throw new IllegalStateException("Consumed " + metrics.getConsumedCount() + " of " + CommonConstants.MESSAGE_COUNT);
+        }
+        return CommonConstants.MESSAGE_COUNT / (duration / 1e9);
+    }
+}
@@ -6,33 +6,83 @@ import com.lmax.disruptor.dsl.Disruptor;
 import com.lmax.disruptor.dsl.ProducerType;
 import com.lmax.disruptor.util.DaemonThreadFactory;
 import com.performance.test.common.models.OrderMessage;
+import com.performance.test.common.profiling.RunProfiler;
+import com.performance.test.common.profiling.RunProfiler.Role;
 import com.performance.test.lmax.consumer.LMaxOrderConsumer;
+import com.performance.test.lmax.metrics.DisruptorMetrics;
+import com.performance.test.lmax.metrics.MetricsReporter;
 import com.performance.test.lmax.producer.LMaxOrderProducer;
+import com.performance.test.lmax.producer.OverloadPolicy;
 
+import java.util.Arrays;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
+import static com.performance.test.common.CommonConstants.MESSAGE_COUNT;
 import static com.performance.test.common.CommonConstants.ONE_BILLION;
 import static com.performance.test.common.CommonConstants.RING_BUFFER_SIZE;
 
 public class LMaxDisruptorTest {
 
     public static void main(String[] args) {
+        // Pass --metrics to expose counters over JMX and log a snapshot every second
+        boolean instrumented = Arrays.asList(args).contains("--metrics");
+        // Pass --overload=drop or --overload=spill to change what the producer does when the ring is full
+        OverloadPolicy overloadPolicy = Arrays.stream(args)
+                .filter(arg -> arg.startsWith("--overload="))
+                .map(arg -> OverloadPolicy.valueOf(arg.substring("--overload=".length()).toUpperCase()))
+                .findFirst()
+                .orElse(OverloadPolicy.BLOCK);
+        // Pass --profile to report allocation per role and GC activity over the timed window
+        RunProfiler profiler = Arrays.asList(args).contains("--profile") ? new RunProfiler() : null;
         long start = System.nanoTime();
+        if (profiler != null) {
+            profiler.start();
+        }
         Disruptor<OrderMessage> disruptor = new Disruptor<>(
                 OrderMessage.EVENT_FACTORY,
                 RING_BUFFER_SIZE,
-                DaemonThreadFactory.INSTANCE,
+                profiler == null ? DaemonThreadFactory.INSTANCE : profiler.threadFactory(Role.CONSUMER, DaemonThreadFactory.INSTANCE),
                 ProducerType.SINGLE,
                 new YieldingWaitStrategy());
-        disruptor.handleEventsWith(new LMaxOrderConsumer());
+        DisruptorMetrics metrics = instrumented ? new DisruptorMetrics(disruptor.getRingBuffer()) : null;
+        LMaxOrderConsumer consumer = new LMaxOrderConsumer(metrics);
+        disruptor.handleEventsWith(consumer);
+        MetricsReporter reporter = null;
+        if (metrics != null) {
+            metrics.trackHandler("orders", () -> disruptor.getSequenceValueFor(consumer));
+            metrics.register("orders");
+            reporter = new MetricsReporter(metrics).start(1, TimeUnit.SECONDS);
+        }
         disruptor.start();
         RingBuffer<OrderMessage> ringBuffer = disruptor.getRingBuffer();
-        LMaxOrderProducer producer = new LMaxOrderProducer(ringBuffer);
-        CompletableFuture<Void> producerFuture = CompletableFuture.runAsync(producer::publishOrders);
-        producerFuture.join();
-        double duration = (double) (System.nanoTime() - start) / ONE_BILLION;
+        LMaxOrderProducer producer = new LMaxOrderProducer(ringBuffer, metrics, overloadPolicy);
+        Runnable publish = producer::publishOrders;
+        CompletableFuture<Void> producerFuture = CompletableFuture.runAsync(
+                profiler == null ? publish : profiler.track(Role.PRODUCER, publish));
+        long end;
+        try {
+            producerFuture.join();
+            // Stopping the profiler collects its results, which is not part of the timed run
+            end = System.nanoTime();
+            if (profiler != null) {
+                profiler.stop();
+            }
+        } finally {
+            producer.close();
+        }
+        double duration = (double) (end - start) / ONE_BILLION;
         String message = String.format("Total duration : %.2f", duration);
         System.out.println(message);
+        if (profiler != null) {
+            System.out.print(profiler.summary(MESSAGE_COUNT));
+        }
+        if (overloadPolicy != OverloadPolicy.BLOCK) {
+            System.out.println(String.format("Dropped : %d, spilled : %d", producer.getDroppedCount(), producer.getSpilledCount()));
+        }
+        if (reporter != null) {
+            reporter.close();
+        }
 
     }
 }
@@ -0,0 +1,103 @@
+package com.performance.test.lmax;
+
+import com.lmax.disruptor.EventHandler;
+import com.lmax.disruptor.Sequence;
+import com.lmax.disruptor.YieldingWaitStrategy;
+import com.lmax.disruptor.dsl.Disruptor;
+import com.lmax.disruptor.dsl.ProducerType;
+import com.lmax.disruptor.util.DaemonThreadFactory;
+import com.performance.test.common.models.OrderMessage;
+import com.performance.test.lmax.producer.LMaxOrderProducer;
+import com.performance.test.lmax.producer.OverloadPolicy;
+
+import java.util.Arrays;
+
+import static com.performance.test.common.CommonConstants.RING_BUFFER_SIZE;
+
+/**
+ * Publishes into a ring whose consumer is slower than the producer for the whole run and reports, per
+ * {@link OverloadPolicy}, the producer's per-call latency and the offered and delivered throughput.
+ * Usage: {@code OverloadPolicyBenchmark [messageCount] [consumerNanosPerEvent]}.
+ */
+public class OverloadPolicyBenchmark {
+
+    public static void main(String[] args) {
+        int messageCount = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        long workNanos = args.length > 1 ? Long.parseLong(args[1]) : 1_000;
+
+        for (OverloadPolicy policy : OverloadPolicy.values()) {
+            run(policy, Math.min(messageCount, 100_000), workNanos, false);
+        }
+        for (OverloadPolicy policy : OverloadPolicy.values()) {
+            run(policy, messageCount, workNanos, true);
+        }
+    }
+
+    private static void run(OverloadPolicy policy, int messageCount, long workNanos, boolean report) {
+        Disruptor<OrderMessage> disruptor = new Disruptor<>(
+                OrderMessage.EVENT_FACTORY,
+                RING_BUFFER_SIZE,
+                DaemonThreadFactory.INSTANCE,
+                ProducerType.SINGLE,
+                new YieldingWaitStrategy());
+        SlowConsumer consumer = new SlowConsumer(workNanos);
+        disruptor.handleEventsWith(consumer);
+        disruptor.start();
+
+        long[] latencies = new long[messageCount];
+        int maxBacklog = 0;
+        long start = System.nanoTime();
+        long producerEnd;
+        long dropped;
+        long spilled;
+        try (LMaxOrderProducer producer = new LMaxOrderProducer(disruptor.getRingBuffer(), null, policy)) {
+            for (int i = 0; i < messageCount; i++) {
+                long callStart = System.nanoTime();
+                producer.publishOrder(i);
+                latencies[i] = System.nanoTime() - callStart;
+                if ((i & 1023) == 0) {
+                    maxBacklog = Math.max(maxBacklog, producer.getSpillBacklog());
+                }
+            }
+            producerEnd = System.nanoTime();
+            producer.flushSpill();
+            dropped = producer.getDroppedCount();
+            spilled = producer.getSpilledCount();
+        }
+        disruptor.shutdown();
+        long end = System.nanoTime();
+
+        if (!report) {
+            return;
+        }
+        Arrays.sort(latencies);
+        System.out.println(String.format("%-5s : producer p50 %.2f us, p99 %.2f us, p99.9 %.2f us, max %.1f us | "
+                        + "offered %.2f M msg/s, delivered %d in %.2f s (%.2f M msg/s) | dropped %d, spilled %d, max backlog %d",
+                policy,
+                latencies[messageCount / 2] / 1e3, latencies[(int) (messageCount * 0.99)] / 1e3,
+                latencies[(int) (messageCount * 0.999)] / 1e3, latencies[messageCount - 1] / 1e3,
+                messageCount / ((producerEnd - start) / 1e9) / 1e6,
+                consumer.consumed.get(), (end - start) / 1e9, consumer.consumed.get() / ((end - start) / 1e9) / 1e6,
+                dropped, spilled, maxBacklog));
+    }
+
+    /** Spins for a fixed time per event to simulate a consumer that cannot keep up. */
+    private static class SlowConsumer implements EventHandler<OrderMessage> {
+        private final long workNanos;
+        private final Sequence consumed = new Sequence(0);
+
+        SlowConsumer(long workNanos) {
+            this.workNanos = workNanos;
+        }
+
+        @Override
+        public void onEvent(OrderMessage orderMessage, long sequence, boolean endOfBatch) {
+            long deadline = System.nanoTime() + workNanos;
+            while (System.nanoTime() < deadline) {
+                Thread.onSpinWait();
+            }
+            orderMessage.clear();
+            consumed.set(consumed.get() + 1);
+        }
+    }
+}
@@ -3,12 +3,31 @@ package com.performance.test.lmax.consumer;
 import com.lmax.disruptor.EventHandler;
 import com.performance.test.common.models.Order;
 import com.performance.test.common.models.OrderMessage;
+import com.performance.test.lmax.metrics.DisruptorMetrics;
 
 public class LMaxOrderConsumer implements EventHandler<OrderMessage> {
 
+    private final DisruptorMetrics metrics;
+    private long batchSize;
+
+    public LMaxOrderConsumer() {
+        this(null);
+    }
+
+    public LMaxOrderConsumer(DisruptorMetrics metrics) {
+        this.metrics = metrics;
+    }
+
     @Override
     public void onEvent(OrderMessage orderMessage, long sequence, boolean endOfBatch) throws Exception {
         Order order = orderMessage.getOrder();
         orderMessage.clear();
+        if (metrics != null) {
+            batchSize++;
+            if (endOfBatch) {
+                metrics.onBatch(batchSize);
+                batchSize = 0;
+            }
+        }
     }
 }
@@ -0,0 +1,170 @@
+package com.performance.test.lmax.metrics;
+
+import com.lmax.disruptor.RingBuffer;
+import com.lmax.disruptor.Sequence;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+/**
+ * Counters for a live Disruptor run.
+ *
+ * Producer counters are written only by the producer thread and consumer counters only by the
+ * instrumented handler thread. Each is a padded {@link Sequence} updated with an ordered store, so the
+ * hot path takes no lock and no CAS, and readers such as JMX or {@link MetricsReporter} see a recent
+ * value without coordinating with the writers.
+ */
+public class DisruptorMetrics implements DisruptorMetricsMXBean {
+
+    // Bucket i counts batches of size [2^i, 2^(i+1))
+    public static final int HISTOGRAM_BUCKETS = 32;
+
+    private final RingBuffer<?> ringBuffer;
+    private final Map<String, LongSupplier> handlerSequences = new LinkedHashMap<>();
+
+    private final Sequence published = new Sequence(0);
+    private final Sequence producerBlockedCount = new Sequence(0);
+    private final Sequence producerBlockedNanos = new Sequence(0);
+    private final Sequence dropped = new Sequence(0);
+    private final Sequence spilled = new Sequence(0);
+    private final Sequence consumed = new Sequence(0);
+    private final AtomicLongArray batchSizes = new AtomicLongArray(HISTOGRAM_BUCKETS);
+
+    public DisruptorMetrics(RingBuffer<?> ringBuffer) {
+        this.ringBuffer = ringBuffer;
+    }
+
+    /**
+     * Tracks the lag of a handler, for example {@code () -> disruptor.getSequenceValueFor(handler)}.
+     * Handlers must be registered before the metrics are shared with other threads.
+     */
+    public DisruptorMetrics trackHandler(String name, LongSupplier sequence) {
+        handlerSequences.put(name, sequence);
+        return this;
+    }
+
+    public void register(String name) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName(name));
+        } catch (JMException e) {
+            throw new IllegalStateException("Failed to register metrics MBean " + name, e);
+        }
+    }
+
+    public void unregister(String name) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName(name));
+        } catch (JMException e) {
+            throw new IllegalStateException("Failed to unregister metrics MBean " + name, e);
+        }
+    }
+
+    private static ObjectName objectName(String name) throws JMException {
+        return new ObjectName("com.performance.test:type=Disruptor,name=" + ObjectName.quote(name));
+    }
+
+    // Producer thread only
+
+    public void onPublished() {
+        published.set(published.get() + 1);
+    }
+
+    public void onProducerBlocked(long nanos) {
+        producerBlockedCount.set(producerBlockedCount.get() + 1);
+        producerBlockedNanos.set(producerBlockedNanos.get() + nanos);
+    }
+
+    public void onDropped() {
+        dropped.set(dropped.get() + 1);
+    }
+
+    public void onSpilled() {
+        spilled.set(spilled.get() + 1);
+    }
+
+    // Instrumented handler thread only
+
+    public void onBatch(long size) {
+        consumed.set(consumed.get() + size);
+        int bucket = Math.min(HISTOGRAM_BUCKETS - 1, 63 - Long.numberOfLeadingZeros(size));
+        batchSizes.lazySet(bucket, batchSizes.get(bucket) + 1);
+    }
+
+    // Any thread
+
+    @Override
+    public long getPublishedCount() {
+        return published.get();
+    }
+
+    @Override
+    public long getConsumedCount() {
+        return consumed.get();
+    }
+
+    @Override
+    public long getCursor() {
+        return ringBuffer.getCursor();
+    }
+
+    @Override
+    public long getBufferSize() {
+        return ringBuffer.getBufferSize();
+    }
+
+    @Override
+    public long getRemainingCapacity() {
+        return ringBuffer.remainingCapacity();
+    }
+
+    @Override
+    public long getProducerBlockedCount() {
+        return producerBlockedCount.get();
+    }
+
+    @Override
+    public long getProducerBlockedNanos() {
+        return producerBlockedNanos.get();
+    }
+
+    @Override
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    @Override
+    public long getSpilledCount() {
+        return spilled.get();
+    }
+
+    @Override
+    public Map<String, Long> getHandlerLag() {
+        long cursor = ringBuffer.getCursor();
+        Map<String, Long> lag = new LinkedHashMap<>();
+        for (Map.Entry<String, LongSupplier> handler : handlerSequences.entrySet()) {
+            lag.put(handler.getKey(), cursor - handler.getValue().getAsLong());
+        }
+        return lag;
+    }
+
+    @Override
+    public long[] getBatchSizeHistogram() {
+        long[] histogram = new long[HISTOGRAM_BUCKETS];
+        for (int i = 0; i < HISTOGRAM_BUCKETS; i++) {
+            histogram[i] = batchSizes.get(i);
+        }
+        return histogram;
+    }
+
+    public MetricsSnapshot snapshot() {
+        return new MetricsSnapshot(System.nanoTime(), getPublishedCount(), getConsumedCount(),
+                getRemainingCapacity(), getProducerBlockedCount(), getProducerBlockedNanos(),
+                getDroppedCount(), getSpilledCount(),
+                getHandlerLag(), getBatchSizeHistogram());
+    }
+}
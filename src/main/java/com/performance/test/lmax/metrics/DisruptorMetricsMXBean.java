@@ -0,0 +1,28 @@
+package com.performance.test.lmax.metrics;
+
+import java.util.Map;
+
+public interface DisruptorMetricsMXBean {
+
+    long getPublishedCount();
+
+    long getConsumedCount();
+
+    long getCursor();
+
+    long getBufferSize();
+
+    long getRemainingCapacity();
+
+    long getProducerBlockedCount();
+
+    long getProducerBlockedNanos();
+
+    long getDroppedCount();
+
+    long getSpilledCount();
+
+    Map<String, Long> getHandlerLag();
+
+    long[] getBatchSizeHistogram();
+}
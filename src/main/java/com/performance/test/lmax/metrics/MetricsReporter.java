@@ -0,0 +1,51 @@
+package com.performance.test.lmax.metrics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Logs a {@link MetricsSnapshot} at a fixed period from a daemon thread.
+ */
+public class MetricsReporter implements AutoCloseable {
+
+    Logger logger = LoggerFactory.getLogger(MetricsReporter.class);
+
+    private final DisruptorMetrics metrics;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "disruptor-metrics");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private MetricsSnapshot previous;
+
+    public MetricsReporter(DisruptorMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public MetricsReporter start(long period, TimeUnit unit) {
+        previous = metrics.snapshot();
+        scheduler.scheduleAtFixedRate(this::report, period, period, unit);
+        return this;
+    }
+
+    private void report() {
+        MetricsSnapshot current = metrics.snapshot();
+        logger.info(current.format(previous));
+        previous = current;
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+        try {
+            scheduler.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        report();
+    }
+}
@@ -0,0 +1,96 @@
+package com.performance.test.lmax.metrics;
+
+import java.util.Map;
+
+/**
+ * Point in time copy of {@link DisruptorMetrics}, with rates relative to an earlier snapshot.
+ */
+public class MetricsSnapshot {
+
+    private final long timestampNanos;
+    private final long published;
+    private final long consumed;
+    private final long remainingCapacity;
+    private final long producerBlockedCount;
+    private final long producerBlockedNanos;
+    private final long dropped;
+    private final long spilled;
+    private final Map<String, Long> handlerLag;
+    private final long[] batchSizeHistogram;
+
+    MetricsSnapshot(long timestampNanos, long published, long consumed, long remainingCapacity,
+                    long producerBlockedCount, long producerBlockedNanos, long dropped, long spilled, Map<String, Long> handlerLag,
+                    long[] batchSizeHistogram) {
+        this.timestampNanos = timestampNanos;
+        this.published = published;
+        this.consumed = consumed;
+        this.remainingCapacity = remainingCapacity;
+        this.producerBlockedCount = producerBlockedCount;
+        this.producerBlockedNanos = producerBlockedNanos;
+        this.dropped = dropped;
+        this.spilled = spilled;
+        this.handlerLag = handlerLag;
+        this.batchSizeHistogram = batchSizeHistogram;
+    }
+
+    public long getPublished() {
+        return published;
+    }
+
+    public long getConsumed() {
+        return consumed;
+    }
+
+    public long getRemainingCapacity() {
+        return remainingCapacity;
+    }
+
+    public long getProducerBlockedCount() {
+        return producerBlockedCount;
+    }
+
+    public long getProducerBlockedNanos() {
+        return producerBlockedNanos;
+    }
+
+    public long getDropped() {
+        return dropped;
+    }
+
+    public long getSpilled() {
+        return spilled;
+    }
+
+    public Map<String, Long> getHandlerLag() {
+        return handlerLag;
+    }
+
+    public long[] getBatchSizeHistogram() {
+        return batchSizeHistogram;
+    }
+
+    public double getMeanBatchSize() {
+        long batches = 0;
+        for (long count : batchSizeHistogram) {
+            batches += count;
+        }
+        return batches == 0 ? 0 : (double) consumed / batches;
+    }
+
+    public String format(MetricsSnapshot previous) {
+        double seconds = previous == null ? 0 : (timestampNanos - previous.timestampNanos) / 1e9;
+        double publishRate = seconds == 0 ? 0 : (published - previous.published) / seconds;
+        double consumeRate = seconds == 0 ? 0 : (consumed - previous.consumed) / seconds;
+        double blockedMillis = (producerBlockedNanos - (previous == null ? 0 : previous.producerBlockedNanos)) / 1e6;
+        return String.format("published %d (%.0f/s), consumed %d (%.0f/s), remaining capacity %d, "
+                        + "producer blocked %.1f ms, dropped %d, spilled %d, lag %s, mean batch %.1f",
+                published, publishRate, consumed, consumeRate, remainingCapacity, blockedMillis, dropped, spilled,
+                handlerLag,
+                getMeanBatchSize());
+    }
+
+    @Override
+    public String toString() {
+        return format(null);
+    }
+}
@@ -1,17 +1,47 @@
 package com.performance.test.lmax.producer;
 
+import com.lmax.disruptor.InsufficientCapacityException;
 import com.lmax.disruptor.RingBuffer;
 import com.performance.test.common.models.Order;
 import com.performance.test.common.models.OrderMessage;
+import com.performance.test.lmax.metrics.DisruptorMetrics;
 
 import static com.performance.test.common.CommonConstants.MESSAGE_COUNT;
 
-public class LMaxOrderProducer {
+public class LMaxOrderProducer implements AutoCloseable {
+
+    // 64 MB holds a few million spilled orders
+    private static final int SPILL_FILE_CAPACITY = 64 * 1024 * 1024;
 
     private RingBuffer<OrderMessage> ringBuffer;
+    private final DisruptorMetrics metrics;
+    private final OverloadPolicy overloadPolicy;
+    private final SpillFile spillFile;
+    private long droppedCount;
+    private long spilledCount;
 
     public LMaxOrderProducer(RingBuffer<OrderMessage> ringBuffer) {
+        this(ringBuffer, null);
+    }
+
+    public LMaxOrderProducer(RingBuffer<OrderMessage> ringBuffer, DisruptorMetrics metrics) {
+        this(ringBuffer, metrics, OverloadPolicy.BLOCK);
+    }
+
+    public LMaxOrderProducer(RingBuffer<OrderMessage> ringBuffer, DisruptorMetrics metrics, OverloadPolicy overloadPolicy) {
+        this(ringBuffer, metrics, overloadPolicy,
+                overloadPolicy == OverloadPolicy.SPILL ? SpillFile.createTemp(SPILL_FILE_CAPACITY) : null);
+    }
+
+    public LMaxOrderProducer(RingBuffer<OrderMessage> ringBuffer, DisruptorMetrics metrics,
+                             OverloadPolicy overloadPolicy, SpillFile spillFile) {
+        if (overloadPolicy == OverloadPolicy.SPILL && spillFile == null) {
+            throw new IllegalArgumentException("The SPILL policy needs a spill file");
+        }
         this.ringBuffer = ringBuffer;
+        this.metrics = metrics;
+        this.overloadPolicy = overloadPolicy;
+        this.spillFile = spillFile;
     }
 
     private synchronized Order createNewOrder(int orderId) {
@@ -22,10 +52,127 @@ public class LMaxOrderProducer {
 
     public void  publishOrders() {
         for(int i=0; i< MESSAGE_COUNT; i++) {
+            publishOrder(i);
+        }
+        flushSpill();
+    }
+
+    /**
+     * Publishes one order according to the overload policy. Returns false only if the order was dropped,
+     * either by the DROP policy or because the spill file is full; a spilled order is accepted and will be
+     * published by a later call or by {@link #flushSpill()}.
+     */
+    public boolean publishOrder(int orderId) {
+        switch (overloadPolicy) {
+            case DROP:
+                try {
+                    publish(this.ringBuffer.tryNext(), createNewOrder(orderId));
+                    return true;
+                } catch (InsufficientCapacityException e) {
+                    droppedCount++;
+                    if (metrics != null) {
+                        metrics.onDropped();
+                    }
+                    return false;
+                }
+            case SPILL:
+                // Orders already in the spill file go first so the ring sees them in publish order
+                if (drainSpill()) {
+                    try {
+                        publish(this.ringBuffer.tryNext(), createNewOrder(orderId));
+                        return true;
+                    } catch (InsufficientCapacityException e) {
+                        // Fall through and spill the order
+                    }
+                }
+                return spill(createNewOrder(orderId));
+            default:
+                publish(next(), createNewOrder(orderId));
+                return true;
+        }
+    }
+
+    /** Blocks until every spilled order has been published to the ring. */
+    public void flushSpill() {
+        if (spillFile == null) {
+            return;
+        }
+        Order order;
+        while ((order = spillFile.poll()) != null) {
+            publish(next(), order);
+        }
+    }
+
+    /** Moves spilled orders into the ring while it has capacity, returning true if the spill file is empty. */
+    private boolean drainSpill() {
+        while (!spillFile.isEmpty()) {
+            long sequence;
+            try {
+                sequence = this.ringBuffer.tryNext();
+            } catch (InsufficientCapacityException e) {
+                return false;
+            }
+            publish(sequence, spillFile.poll());
+        }
+        return true;
+    }
+
+    /** Spills the order, or drops and counts it if the spill file is full, rather than blocking the caller. */
+    private boolean spill(Order order) {
+        if (!spillFile.append(order)) {
+            droppedCount++;
+            if (metrics != null) {
+                metrics.onDropped();
+            }
+            return false;
+        }
+        spilledCount++;
+        if (metrics != null) {
+            metrics.onSpilled();
+        }
+        return true;
+    }
+
+    private void publish(long sequence, Order order) {
+        OrderMessage orderMessage = this.ringBuffer.get(sequence);
+        orderMessage.setOrder(order);
+        this.ringBuffer.publish(sequence);
+        if (metrics != null) {
+            metrics.onPublished();
+        }
+    }
+
+    private long next() {
+        if (metrics == null) {
+            return this.ringBuffer.next();
+        }
+        // Only time the claim when the ring is full, so the common case costs no clock reads
+        try {
+            return this.ringBuffer.tryNext();
+        } catch (InsufficientCapacityException e) {
+            long start = System.nanoTime();
             long sequence = this.ringBuffer.next();
-            OrderMessage orderMessage = this.ringBuffer.get(sequence);
-            orderMessage.setOrder(createNewOrder(i));
-            this.ringBuffer.publish(sequence);
+            metrics.onProducerBlocked(System.nanoTime() - start);
+            return sequence;
+        }
+    }
+
+    public long getDroppedCount() {
+        return droppedCount;
+    }
+
+    public long getSpilledCount() {
+        return spilledCount;
+    }
+
+    public int getSpillBacklog() {
+        return spillFile == null ? 0 : spillFile.size();
+    }
+
+    @Override
+    public void close() {
+        if (spillFile != null) {
+            spillFile.close();
         }
     }
 }
@@ -0,0 +1,13 @@
+package com.performance.test.lmax.producer;
+
+/**
+ * What {@link LMaxOrderProducer} does with an order when the ring buffer is full.
+ */
+public enum OverloadPolicy {
+    /** Wait in {@code next()} until the consumers free a slot. */
+    BLOCK,
+    /** Discard the new order and count it. */
+    DROP,
+    /** Append the order to a {@link SpillFile} and republish it once capacity returns, dropping it if the file is full. */
+    SPILL
+}
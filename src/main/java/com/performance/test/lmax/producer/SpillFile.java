@@ -0,0 +1,175 @@
+package com.performance.test.lmax.producer;
+
+import com.performance.test.common.models.Order;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * FIFO overflow log of orders backed by a memory-mapped file.
+ *
+ * The mapping is used as a ring: records are written at the write position and read back from the read
+ * position, and both wrap around to the start of the file, so a record may be split across the end of
+ * the mapping. Only the producer thread may use an instance.
+ */
+public class SpillFile implements AutoCloseable {
+
+    private static final int NO_TYPE = -1;
+    // orderId, quantity, type length
+    private static final int HEADER_BYTES = Integer.BYTES + Double.BYTES + Integer.BYTES;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final int capacity;
+    private final ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+    private MappedByteBuffer buffer;
+    private int readPosition;
+    private int writePosition;
+    private int usedBytes;
+    private int size;
+
+    public SpillFile(Path path, int capacityBytes) {
+        this.path = path;
+        this.capacity = capacityBytes;
+        try {
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacityBytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to map spill file " + path, e);
+        }
+    }
+
+    public static SpillFile createTemp(int capacityBytes) {
+        try {
+            return new SpillFile(Files.createTempFile("order-spill", ".dat"), capacityBytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** Appends the order, returning false if the file has no room left for it. */
+    public boolean append(Order order) {
+        checkOpen();
+        byte[] type = order.getType() == null ? null : order.getType().getBytes(StandardCharsets.UTF_8);
+        int length = HEADER_BYTES + (type == null ? 0 : type.length);
+        if (length > capacity - usedBytes) {
+            return false;
+        }
+        header.clear();
+        header.putInt(order.getOrderId());
+        header.putDouble(order.getQuantity());
+        header.putInt(type == null ? NO_TYPE : type.length);
+        write(header.array());
+        if (type != null) {
+            write(type);
+        }
+        usedBytes += length;
+        size++;
+        return true;
+    }
+
+    /** Removes and returns the oldest order, or null if the file is empty. */
+    public Order poll() {
+        checkOpen();
+        if (size == 0) {
+            return null;
+        }
+        read(header.array());
+        header.clear();
+        Order order = new Order();
+        order.setOrderId(header.getInt());
+        order.setQuantity(header.getDouble());
+        int typeLength = header.getInt();
+        usedBytes -= HEADER_BYTES;
+        if (typeLength != NO_TYPE) {
+            byte[] type = new byte[typeLength];
+            read(type);
+            order.setType(new String(type, StandardCharsets.UTF_8));
+            usedBytes -= typeLength;
+        }
+        size--;
+        return order;
+    }
+
+    /** Copies the bytes in at the write position, continuing from the start of the file at the end. */
+    private void write(byte[] bytes) {
+        int first = Math.min(bytes.length, capacity - writePosition);
+        buffer.position(writePosition);
+        buffer.put(bytes, 0, first);
+        if (first < bytes.length) {
+            buffer.position(0);
+            buffer.put(bytes, first, bytes.length - first);
+        }
+        writePosition = (writePosition + bytes.length) % capacity;
+    }
+
+    /** Fills the array from the read position, continuing from the start of the file at the end. */
+    private void read(byte[] bytes) {
+        int first = Math.min(bytes.length, capacity - readPosition);
+        buffer.position(readPosition);
+        buffer.get(bytes, 0, first);
+        if (first < bytes.length) {
+            buffer.position(0);
+            buffer.get(bytes, first, bytes.length - first);
+        }
+        readPosition = (readPosition + bytes.length) % capacity;
+    }
+
+    private void checkOpen() {
+        if (buffer == null) {
+            throw new IllegalStateException("Spill file " + path + " is closed");
+        }
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /** Unmaps the file before deleting it, since a mapped file cannot be removed on every platform. */
+    @Override
+    public void close() {
+        if (buffer == null) {
+            return;
+        }
+        MappedByteBuffer mapped = buffer;
+        buffer = null;
+        unmap(mapped);
+        try {
+            channel.close();
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to delete spill file " + path, e);
+        }
+    }
+
+    /**
+     * Releases the mapping now rather than when the buffer is garbage collected. There is no public API
+     * for this, so it goes through {@code sun.misc.Unsafe.invokeCleaner} and leaves the mapping to the
+     * collector if that is not available.
+     */
+    private static void unmap(MappedByteBuffer mapped) {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            invokeCleaner.invoke(theUnsafe.get(null), mapped);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // Fall back to unmapping on garbage collection
+        }
+    }
+}
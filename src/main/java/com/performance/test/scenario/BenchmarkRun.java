@@ -0,0 +1,37 @@
+package com.performance.test.scenario;
+
+import java.util.List;
+
+/**
+ * Everything one runner invocation writes to disk, so runs can be compared across machines and commits.
+ */
+public class BenchmarkRun {
+
+    private final String timestamp;
+    private final String javaVersion;
+    private final int availableProcessors;
+    private final List<ScenarioResult> results;
+
+    BenchmarkRun(String timestamp, List<ScenarioResult> results) {
+        this.timestamp = timestamp;
+        this.javaVersion = System.getProperty("java.version");
+        this.availableProcessors = Runtime.getRuntime().availableProcessors();
+        this.results = results;
+    }
+
+    public String getTimestamp() {
+        return timestamp;
+    }
+
+    public String getJavaVersion() {
+        return javaVersion;
+    }
+
+    public int getAvailableProcessors() {
+        return availableProcessors;
+    }
+
+    public List<ScenarioResult> getResults() {
+        return results;
+    }
+}
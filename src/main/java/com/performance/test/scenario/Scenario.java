@@ -0,0 +1,100 @@
+package com.performance.test.scenario;
+
+import com.google.gson.annotations.SerializedName;
+import com.lmax.disruptor.BlockingWaitStrategy;
+import com.lmax.disruptor.BusySpinWaitStrategy;
+import com.lmax.disruptor.SleepingWaitStrategy;
+import com.lmax.disruptor.WaitStrategy;
+import com.lmax.disruptor.YieldingWaitStrategy;
+
+/**
+ * One benchmark configuration, read from a scenario file with Gson. Fields left out of the file keep the
+ * defaults below.
+ */
+public class Scenario {
+
+    public enum Engine {
+        @SerializedName("disruptor")
+        DISRUPTOR,
+        @SerializedName("vanilla")
+        VANILLA
+    }
+
+    private String name;
+    private Engine engine = Engine.DISRUPTOR;
+    private int producers = 1;
+    private int consumers = 1;
+    private int ringSize = 1024;
+    private String waitStrategy = "yielding";
+    private int messageCount = 10_000_000;
+
+    public String getName() {
+        return name;
+    }
+
+    public Engine getEngine() {
+        return engine;
+    }
+
+    public int getProducers() {
+        return producers;
+    }
+
+    public int getConsumers() {
+        return consumers;
+    }
+
+    public int getRingSize() {
+        return ringSize;
+    }
+
+    public String getWaitStrategy() {
+        return waitStrategy;
+    }
+
+    public int getMessageCount() {
+        return messageCount;
+    }
+
+    public void validate() {
+        if (name == null || name.isEmpty()) {
+            throw new IllegalArgumentException("Every scenario needs a name");
+        }
+        if (engine == null) {
+            throw new IllegalArgumentException(name + ": engine must be one of disruptor, vanilla");
+        }
+        if (producers < 1 || consumers < 1 || messageCount < 1) {
+            throw new IllegalArgumentException(name + ": producers, consumers and messageCount must be positive");
+        }
+        if (engine == Engine.DISRUPTOR) {
+            if (Integer.bitCount(ringSize) != 1) {
+                throw new IllegalArgumentException(name + ": ringSize must be a power of 2, was " + ringSize);
+            }
+            createWaitStrategy();
+        }
+    }
+
+    public WaitStrategy createWaitStrategy() {
+        switch (waitStrategy) {
+            case "blocking":
+                return new BlockingWaitStrategy();
+            case "sleeping":
+                return new SleepingWaitStrategy();
+            case "yielding":
+                return new YieldingWaitStrategy();
+            case "busy-spin":
+                return new BusySpinWaitStrategy();
+            default:
+                throw new IllegalArgumentException(name + ": unknown wait strategy " + waitStrategy
+                        + ", expected blocking, sleeping, yielding or busy-spin");
+        }
+    }
+
+    @Override
+    public String toString() {
+        return engine == Engine.DISRUPTOR
+                ? String.format("%s [disruptor, %dP/%dC, ring %d, %s, %d msgs]", name, producers, consumers,
+                        ringSize, waitStrategy, messageCount)
+                : String.format("%s [vanilla, %dP/%dC, %d msgs]", name, producers, consumers, messageCount);
+    }
+}
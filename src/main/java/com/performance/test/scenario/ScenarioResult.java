@@ -0,0 +1,59 @@
+package com.performance.test.scenario;
+
+import java.util.Arrays;
+
+/**
+ * Outcome of all measured repetitions of one scenario. Latency is end to end, from just before the
+ * producer hands an order over until a consumer receives it, sampled on every 1024th order.
+ */
+public class ScenarioResult {
+
+    private final Scenario scenario;
+    private final double[] throughputs;
+    private final double medianThroughput;
+    private final long p50LatencyNanos;
+    private final long p99LatencyNanos;
+    private final long maxLatencyNanos;
+
+    ScenarioResult(Scenario scenario, double[] throughputs, long[] latencies) {
+        this.scenario = scenario;
+        this.throughputs = throughputs;
+        double[] sorted = throughputs.clone();
+        Arrays.sort(sorted);
+        this.medianThroughput = sorted[sorted.length / 2];
+        Arrays.sort(latencies);
+        this.p50LatencyNanos = latencies.length == 0 ? 0 : latencies[latencies.length / 2];
+        this.p99LatencyNanos = latencies.length == 0 ? 0 : latencies[(int) (latencies.length * 0.99)];
+        this.maxLatencyNanos = latencies.length == 0 ? 0 : latencies[latencies.length - 1];
+    }
+
+    public Scenario getScenario() {
+        return scenario;
+    }
+
+    public double[] getThroughputs() {
+        return throughputs;
+    }
+
+    public double getMedianThroughput() {
+        return medianThroughput;
+    }
+
+    public long getP50LatencyNanos() {
+        return p50LatencyNanos;
+    }
+
+    public long getP99LatencyNanos() {
+        return p99LatencyNanos;
+    }
+
+    public long getMaxLatencyNanos() {
+        return maxLatencyNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%-60s : median %.2f M msg/s, latency p50 %.1f us, p99 %.1f us, max %.1f us",
+                scenario, medianThroughput / 1e6, p50LatencyNanos / 1e3, p99LatencyNanos / 1e3, maxLatencyNanos / 1e3);
+    }
+}
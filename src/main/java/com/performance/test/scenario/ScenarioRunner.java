@@ -0,0 +1,324 @@
+package com.performance.test.scenario;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.lmax.disruptor.EventHandler;
+import com.lmax.disruptor.WorkHandler;
+import com.lmax.disruptor.dsl.Disruptor;
+import com.lmax.disruptor.dsl.ProducerType;
+import com.lmax.disruptor.util.DaemonThreadFactory;
+import com.performance.test.common.models.Order;
+import com.performance.test.common.models.OrderMessage;
+import com.performance.test.lmax.producer.LMaxOrderProducer;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Runs every scenario of a scenario file, writes the results as JSON and compares them with a baseline.
+ *
+ * Each run keeps its own results file under the results directory, so the directory is the history.
+ * A scenario regresses when its median throughput drops, or its p99 latency grows, by more than the
+ * suite threshold relative to the baseline scenario of the same name. The exit code is 1 if any did.
+ * Usage: {@code ScenarioRunner [scenarios.json] [--results-dir dir] [--baseline file] [--update-baseline]}.
+ */
+public class ScenarioRunner {
+
+    private static final Gson gson = new GsonBuilder().setPrettyPrinting().create();
+
+    // Every 1024th order carries a latency sample
+    private static final int SAMPLE_SHIFT = 10;
+    private static final int SAMPLE_MASK = (1 << SAMPLE_SHIFT) - 1;
+
+    public static void main(String[] args) throws Exception {
+        Path scenarioFile = Path.of("src/main/resources/scenarios.json");
+        Path resultsDir = Path.of("target/benchmark-results");
+        Path baselineFile = Path.of("benchmark-baseline.json");
+        boolean updateBaseline = false;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--results-dir":
+                    resultsDir = Path.of(args[++i]);
+                    break;
+                case "--baseline":
+                    baselineFile = Path.of(args[++i]);
+                    break;
+                case "--update-baseline":
+                    updateBaseline = true;
+                    break;
+                default:
+                    scenarioFile = Path.of(args[i]);
+            }
+        }
+
+        ScenarioSuite suite;
+        try (Reader reader = Files.newBufferedReader(scenarioFile)) {
+            suite = gson.fromJson(reader, ScenarioSuite.class);
+        }
+        // Results and baselines are keyed by scenario name, so names must be unique within a suite
+        Set<String> names = new HashSet<>();
+        for (Scenario scenario : suite.getScenarios()) {
+            scenario.validate();
+            if (!names.add(scenario.getName())) {
+                throw new IllegalArgumentException(scenario.getName() + ": duplicate scenario name in " + scenarioFile);
+            }
+        }
+
+        List<ScenarioResult> results = new ArrayList<>();
+        for (Scenario scenario : suite.getScenarios()) {
+            ScenarioResult result = run(scenario, suite.getWarmup(), suite.getRepetitions());
+            System.out.println(result);
+            results.add(result);
+        }
+
+        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+        BenchmarkRun benchmarkRun = new BenchmarkRun(timestamp, results);
+        Files.createDirectories(resultsDir);
+        Path resultsFile = resultsDir.resolve("run-" + timestamp + ".json");
+        write(benchmarkRun, resultsFile);
+        System.out.println("Results written to " + resultsFile);
+
+        int regressions = 0;
+        if (Files.exists(baselineFile)) {
+            BenchmarkRun baseline;
+            try (Reader reader = Files.newBufferedReader(baselineFile)) {
+                baseline = gson.fromJson(reader, BenchmarkRun.class);
+            }
+            regressions = compare(baseline, benchmarkRun, suite.getThreshold());
+        } else {
+            System.out.println("No baseline at " + baselineFile + ", skipping the comparison");
+        }
+        if (updateBaseline) {
+            write(benchmarkRun, baselineFile);
+            System.out.println("Baseline updated at " + baselineFile);
+        }
+        if (regressions > 0) {
+            System.exit(1);
+        }
+    }
+
+    public static ScenarioResult run(Scenario scenario, int warmup, int repetitions) {
+        for (int i = 0; i < warmup; i++) {
+            runOnce(scenario, new ArrayList<>());
+        }
+        double[] throughputs = new double[repetitions];
+        List<long[]> latencies = new ArrayList<>();
+        for (int i = 0; i < repetitions; i++) {
+            throughputs[i] = runOnce(scenario, latencies);
+        }
+        int sampleCount = 0;
+        for (long[] consumerLatencies : latencies) {
+            sampleCount += consumerLatencies.length;
+        }
+        long[] allLatencies = new long[sampleCount];
+        int offset = 0;
+        for (long[] consumerLatencies : latencies) {
+            System.arraycopy(consumerLatencies, 0, allLatencies, offset, consumerLatencies.length);
+            offset += consumerLatencies.length;
+        }
+        return new ScenarioResult(scenario, throughputs, allLatencies);
+    }
+
+    /** Runs the scenario once, adding each consumer's latency samples to the list, and returns messages per second. */
+    private static double runOnce(Scenario scenario, List<long[]> latencies) {
+        long[] publishTimes = new long[(scenario.getMessageCount() >>> SAMPLE_SHIFT) + 1];
+        List<LatencyRecorder> recorders = new ArrayList<>();
+        for (int i = 0; i < scenario.getConsumers(); i++) {
+            recorders.add(new LatencyRecorder(publishTimes, scenario.getMessageCount()));
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(scenario.getProducers() + scenario.getConsumers(),
+                DaemonThreadFactory.INSTANCE);
+        long duration;
+        try {
+            duration = scenario.getEngine() == Scenario.Engine.DISRUPTOR
+                    ? runDisruptor(scenario, executor, publishTimes, recorders)
+                    : runVanilla(scenario, executor, publishTimes, recorders);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        long received = 0;
+        for (LatencyRecorder recorder : recorders) {
+            received += recorder.received;
+            latencies.add(recorder.latencies());
+        }
+        if (received != scenario.getMessageCount()) {
+            throw new IllegalStateException(scenario.getName() + ": consumed " + received + " of " + scenario.getMessageCount());
+        }
+        return scenario.getMessageCount() / (duration / 1e9);
+    }
+
+    private static long runDisruptor(Scenario scenario, ExecutorService executor, long[] publishTimes,
+                                     List<LatencyRecorder> recorders) {
+        Disruptor<OrderMessage> disruptor = new Disruptor<>(
+                OrderMessage.EVENT_FACTORY,
+                scenario.getRingSize(),
+                DaemonThreadFactory.INSTANCE,
+                scenario.getProducers() == 1 ? ProducerType.SINGLE : ProducerType.MULTI,
+                scenario.createWaitStrategy());
+        // One consumer sees every event; several share them through a worker pool, like the queue consumers
+        if (recorders.size() == 1) {
+            disruptor.handleEventsWith(recorders.get(0));
+        } else {
+            disruptor.handleEventsWithWorkerPool(recorders.toArray(new LatencyRecorder[0]));
+        }
+        disruptor.start();
+
+        long start = System.nanoTime();
+        List<CompletableFuture<Void>> producers = new ArrayList<>();
+        for (int p = 0; p < scenario.getProducers(); p++) {
+            int first = p;
+            LMaxOrderProducer producer = new LMaxOrderProducer(disruptor.getRingBuffer());
+            producers.add(CompletableFuture.runAsync(() -> {
+                for (int id = first; id < scenario.getMessageCount(); id += scenario.getProducers()) {
+                    if ((id & SAMPLE_MASK) == 0) {
+                        publishTimes[id >>> SAMPLE_SHIFT] = System.nanoTime();
+                    }
+                    producer.publishOrder(id);
+                }
+            }, executor));
+        }
+        CompletableFuture.allOf(producers.toArray(new CompletableFuture<?>[0])).join();
+        disruptor.shutdown();
+        return System.nanoTime() - start;
+    }
+
+    private static long runVanilla(Scenario scenario, ExecutorService executor, long[] publishTimes,
+                                   List<LatencyRecorder> recorders) {
+        ConcurrentLinkedQueue<Order> queue = new ConcurrentLinkedQueue<>();
+
+        long start = System.nanoTime();
+        List<CompletableFuture<Void>> producers = new ArrayList<>();
+        for (int p = 0; p < scenario.getProducers(); p++) {
+            int first = p;
+            producers.add(CompletableFuture.runAsync(() -> {
+                for (int id = first; id < scenario.getMessageCount(); id += scenario.getProducers()) {
+                    Order order = new Order();
+                    order.setOrderId(id);
+                    if ((id & SAMPLE_MASK) == 0) {
+                        publishTimes[id >>> SAMPLE_SHIFT] = System.nanoTime();
+                    }
+                    queue.offer(order);
+                }
+            }, executor));
+        }
+        CompletableFuture<Void> allProduced = CompletableFuture.allOf(producers.toArray(new CompletableFuture<?>[0]));
+        List<CompletableFuture<Void>> consumers = new ArrayList<>();
+        for (LatencyRecorder recorder : recorders) {
+            consumers.add(CompletableFuture.runAsync(() -> {
+                while (true) {
+                    Order order = queue.poll();
+                    if (order != null) {
+                        recorder.onOrder(order);
+                    } else if (allProduced.isDone()) {
+                        // Everything was offered before the producers completed, so one more empty poll ends the run
+                        if ((order = queue.poll()) == null) {
+                            return;
+                        }
+                        recorder.onOrder(order);
+                    } else {
+                        Thread.onSpinWait();
+                    }
+                }
+            }, executor));
+        }
+        CompletableFuture.allOf(consumers.toArray(new CompletableFuture<?>[0])).join();
+        return System.nanoTime() - start;
+    }
+
+    /** Flags scenarios that are slower than the baseline by more than {@code threshold} percent. */
+    static int compare(BenchmarkRun baseline, BenchmarkRun current, double threshold) {
+        Map<String, ScenarioResult> baselineResults = new HashMap<>();
+        for (ScenarioResult result : baseline.getResults()) {
+            baselineResults.put(result.getScenario().getName(), result);
+        }
+        int regressions = 0;
+        System.out.println(String.format("Comparison with baseline from %s, threshold %.1f %%", baseline.getTimestamp(), threshold));
+        for (ScenarioResult result : current.getResults()) {
+            ScenarioResult previous = baselineResults.get(result.getScenario().getName());
+            if (previous == null) {
+                System.out.println(String.format("  %-30s : not in baseline", result.getScenario().getName()));
+                continue;
+            }
+            double throughputChange = percentChange(previous.getMedianThroughput(), result.getMedianThroughput());
+            double latencyChange = percentChange(previous.getP99LatencyNanos(), result.getP99LatencyNanos());
+            boolean throughputRegressed = throughputChange < -threshold;
+            boolean latencyRegressed = latencyChange > threshold;
+            if (throughputRegressed || latencyRegressed) {
+                regressions++;
+            }
+            System.out.println(String.format("  %-30s : throughput %+.1f %%%s, p99 latency %+.1f %%%s",
+                    result.getScenario().getName(),
+                    throughputChange, throughputRegressed ? " REGRESSION" : "",
+                    latencyChange, latencyRegressed ? " REGRESSION" : ""));
+        }
+        System.out.println(regressions == 0 ? "No regressions" : regressions + " scenario(s) regressed");
+        return regressions;
+    }
+
+    private static double percentChange(double before, double after) {
+        return before == 0 ? 0 : (after - before) / before * 100;
+    }
+
+    private static void write(BenchmarkRun benchmarkRun, Path file) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(file)) {
+            gson.toJson(benchmarkRun, writer);
+        }
+    }
+
+    /**
+     * Counts the orders a consumer receives and the latency of the sampled ones. Used as the single
+     * Disruptor handler, as a worker pool member, and as a queue consumer.
+     */
+    private static class LatencyRecorder implements EventHandler<OrderMessage>, WorkHandler<OrderMessage> {
+        private final long[] publishTimes;
+        private final long[] latencies;
+        private int samples;
+        long received;
+
+        LatencyRecorder(long[] publishTimes, int messageCount) {
+            this.publishTimes = publishTimes;
+            this.latencies = new long[(messageCount >>> SAMPLE_SHIFT) + 1];
+        }
+
+        @Override
+        public void onEvent(OrderMessage orderMessage, long sequence, boolean endOfBatch) {
+            onEvent(orderMessage);
+        }
+
+        @Override
+        public void onEvent(OrderMessage orderMessage) {
+            onOrder(orderMessage.getOrder());
+            orderMessage.clear();
+        }
+
+        void onOrder(Order order) {
+            received++;
+            int orderId = order.getOrderId();
+            if ((orderId & SAMPLE_MASK) == 0) {
+                latencies[samples++] = System.nanoTime() - publishTimes[orderId >>> SAMPLE_SHIFT];
+            }
+        }
+
+        long[] latencies() {
+            long[] result = new long[samples];
+            System.arraycopy(latencies, 0, result, 0, samples);
+            return result;
+        }
+    }
+}
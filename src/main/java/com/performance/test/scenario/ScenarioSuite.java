@@ -0,0 +1,32 @@
+package com.performance.test.scenario;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Top level of a scenario file: the run settings shared by every scenario and the scenarios themselves.
+ */
+public class ScenarioSuite {
+
+    private int warmup = 1;
+    private int repetitions = 5;
+    // Percent change against the baseline that counts as a regression
+    private double threshold = 10;
+    private List<Scenario> scenarios = new ArrayList<>();
+
+    public int getWarmup() {
+        return warmup;
+    }
+
+    public int getRepetitions() {
+        return repetitions;
+    }
+
+    public double getThreshold() {
+        return threshold;
+    }
+
+    public List<Scenario> getScenarios() {
+        return scenarios;
+    }
+}
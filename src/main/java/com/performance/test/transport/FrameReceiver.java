@@ -0,0 +1,136 @@
+package com.performance.test.transport;
+
+import com.lmax.disruptor.RingBuffer;
+import com.performance.test.common.models.OrderMessage;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ByteChannel;
+
+/**
+ * Reads frames from a non-blocking channel and publishes their orders into a ring.
+ *
+ * Orders are decoded from a direct buffer straight into the claimed events, and each frame is published
+ * with one batched claim. For datagrams the frame sequence numbers are checked: a frame that starts
+ * after the expected sequence is accepted and the missing orders are counted as lost, a frame that starts
+ * before it is a duplicate or arrived late and is discarded.
+ */
+public class FrameReceiver implements Runnable {
+
+    private final ByteChannel channel;
+    private final boolean datagram;
+    private final RingBuffer<OrderMessage> ringBuffer;
+    private final ByteBuffer buffer;
+    private volatile boolean running = true;
+
+    // Written by the receiving thread only
+    private volatile long framesReceived;
+    private volatile long messagesReceived;
+    private volatile long gaps;
+    private volatile long messagesLost;
+    private volatile long framesDiscarded;
+    private long expectedSequence;
+
+    public FrameReceiver(ByteChannel channel, Transport transport, RingBuffer<OrderMessage> ringBuffer) {
+        this.channel = channel;
+        this.datagram = transport == Transport.UDP;
+        this.ringBuffer = ringBuffer;
+        this.buffer = ByteBuffer.allocateDirect(datagram ? OrderFrames.MAX_FRAME_BYTES : 16 * OrderFrames.MAX_FRAME_BYTES);
+    }
+
+    /** Receives until {@link #stop()} is called or the peer closes the connection. */
+    @Override
+    public void run() {
+        try {
+            while (running) {
+                int read = channel.read(buffer);
+                if (read < 0) {
+                    return;
+                }
+                if (read == 0) {
+                    Thread.yield();
+                    continue;
+                }
+                buffer.flip();
+                if (datagram) {
+                    if (buffer.remaining() >= OrderFrames.HEADER_BYTES) {
+                        onFrame();
+                    }
+                    buffer.clear();
+                } else {
+                    // Handle every complete frame and keep the partial one for the next read
+                    while (buffer.remaining() >= Integer.BYTES
+                            && buffer.remaining() >= Integer.BYTES + buffer.getInt(buffer.position())) {
+                        onFrame();
+                    }
+                    buffer.compact();
+                }
+            }
+        } catch (IOException e) {
+            if (running) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private void onFrame() {
+        int end = buffer.position() + Integer.BYTES + buffer.getInt();
+        long firstSequence = buffer.getLong();
+        int count = buffer.getInt();
+        framesReceived++;
+        if (firstSequence < expectedSequence) {
+            framesDiscarded++;
+            buffer.position(end);
+            return;
+        }
+        if (firstSequence > expectedSequence) {
+            gaps++;
+            messagesLost += firstSequence - expectedSequence;
+        }
+        expectedSequence = firstSequence + count;
+
+        int remaining = count;
+        while (remaining > 0) {
+            int batch = Math.min(remaining, ringBuffer.getBufferSize());
+            long hi = ringBuffer.next(batch);
+            long lo = hi - batch + 1;
+            for (long sequence = lo; sequence <= hi; sequence++) {
+                ringBuffer.get(sequence).setOrder(OrderFrames.readOrder(buffer));
+            }
+            ringBuffer.publish(lo, hi);
+            remaining -= batch;
+        }
+        messagesReceived += count;
+    }
+
+    public void stop() {
+        running = false;
+    }
+
+    public long getFramesReceived() {
+        return framesReceived;
+    }
+
+    public long getMessagesReceived() {
+        return messagesReceived;
+    }
+
+    public long getGaps() {
+        return gaps;
+    }
+
+    public long getMessagesLost() {
+        return messagesLost;
+    }
+
+    public long getFramesDiscarded() {
+        return framesDiscarded;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d frames, %d messages received, %d gaps, %d messages lost, %d frames discarded",
+                framesReceived, messagesReceived, gaps, messagesLost, framesDiscarded);
+    }
+}
@@ -0,0 +1,79 @@
+package com.performance.test.transport;
+
+import com.lmax.disruptor.EventHandler;
+import com.performance.test.common.models.Order;
+import com.performance.test.common.models.OrderMessage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ByteChannel;
+
+/**
+ * Drains a ring into frames on a non-blocking channel.
+ *
+ * Orders are encoded straight into a direct buffer, which is written out at the end of each Disruptor
+ * batch or when the next order no longer fits. A busy consumer therefore sends large frames and an idle
+ * one sends each order as soon as it arrives.
+ */
+public class FrameSender implements EventHandler<OrderMessage> {
+
+    private final ByteChannel channel;
+    private final ByteBuffer frame = ByteBuffer.allocateDirect(OrderFrames.MAX_FRAME_BYTES);
+    private long nextSequence;
+    private int count;
+    private long framesSent;
+
+    /** Sends over a connected {@link java.nio.channels.SocketChannel} or {@link java.nio.channels.DatagramChannel}. */
+    public FrameSender(ByteChannel channel) {
+        this.channel = channel;
+        frame.position(OrderFrames.HEADER_BYTES);
+    }
+
+    @Override
+    public void onEvent(OrderMessage orderMessage, long sequence, boolean endOfBatch) throws IOException {
+        Order order = orderMessage.getOrder();
+        orderMessage.clear();
+        byte[] type = OrderFrames.typeBytes(order);
+        int length = OrderFrames.orderLength(type);
+        if (length > OrderFrames.MAX_FRAME_BYTES - OrderFrames.HEADER_BYTES) {
+            throw new IllegalArgumentException("Order " + order.getOrderId() + " does not fit in a frame");
+        }
+        if (frame.remaining() < length) {
+            flush();
+        }
+        OrderFrames.writeOrder(frame, order, type);
+        count++;
+        if (endOfBatch) {
+            flush();
+        }
+    }
+
+    private void flush() throws IOException {
+        if (count == 0) {
+            return;
+        }
+        frame.putInt(0, frame.position() - Integer.BYTES);
+        frame.putLong(Integer.BYTES, nextSequence);
+        frame.putInt(Integer.BYTES + Long.BYTES, count);
+        frame.flip();
+        // A full socket buffer makes the write return 0, datagrams are written whole or not at all
+        while (frame.hasRemaining()) {
+            if (channel.write(frame) == 0) {
+                Thread.yield();
+            }
+        }
+        nextSequence += count;
+        count = 0;
+        framesSent++;
+        frame.clear();
+        frame.position(OrderFrames.HEADER_BYTES);
+    }
+
+    public long getFramesSent() {
+        return framesSent;
+    }
+
+    public long getMessagesSent() {
+        return nextSequence;
+    }
+}
@@ -0,0 +1,60 @@
+package com.performance.test.transport;
+
+import com.performance.test.common.models.Order;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Binary layout of the frames exchanged by {@link FrameSender} and {@link FrameReceiver}.
+ *
+ * A frame is {@code [int length][long firstSequence][int count]} followed by {@code count} orders, where
+ * {@code length} counts the bytes after itself and {@code firstSequence} is the position of the first
+ * order in the sender's stream. Each order is {@code [int orderId][double quantity][int typeLength]} and
+ * the UTF-8 type, with a length of -1 for no type. TCP uses the length to split the byte stream; UDP
+ * sends one frame per datagram.
+ */
+final class OrderFrames {
+
+    static final int HEADER_BYTES = Integer.BYTES + Long.BYTES + Integer.BYTES;
+    // Fits a UDP datagram on loopback and holds fewer orders than the ring has slots
+    static final int MAX_FRAME_BYTES = 8 * 1024;
+
+    private static final int NO_TYPE = -1;
+    private static final int FIXED_ORDER_BYTES = Integer.BYTES + Double.BYTES + Integer.BYTES;
+
+    private OrderFrames() {
+    }
+
+    static byte[] typeBytes(Order order) {
+        return order.getType() == null ? null : order.getType().getBytes(StandardCharsets.UTF_8);
+    }
+
+    static int orderLength(byte[] type) {
+        return FIXED_ORDER_BYTES + (type == null ? 0 : type.length);
+    }
+
+    static void writeOrder(ByteBuffer buffer, Order order, byte[] type) {
+        buffer.putInt(order.getOrderId());
+        buffer.putDouble(order.getQuantity());
+        if (type == null) {
+            buffer.putInt(NO_TYPE);
+        } else {
+            buffer.putInt(type.length);
+            buffer.put(type);
+        }
+    }
+
+    static Order readOrder(ByteBuffer buffer) {
+        Order order = new Order();
+        order.setOrderId(buffer.getInt());
+        order.setQuantity(buffer.getDouble());
+        int typeLength = buffer.getInt();
+        if (typeLength != NO_TYPE) {
+            byte[] type = new byte[typeLength];
+            buffer.get(type);
+            order.setType(new String(type, StandardCharsets.UTF_8));
+        }
+        return order;
+    }
+}
@@ -0,0 +1,114 @@
+package com.performance.test.transport;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ByteChannel;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+
+/**
+ * Opens the connected, non-blocking channel that {@link FrameSender} and {@link FrameReceiver} share.
+ * Both directions use the same channel.
+ */
+public enum Transport {
+    TCP {
+        @Override
+        public ServerSide bind(int port) throws IOException {
+            ServerSocketChannel channel = ServerSocketChannel.open();
+            channel.bind(new InetSocketAddress("localhost", port));
+            return new ServerSide(channel, null);
+        }
+
+        @Override
+        public ByteChannel accept(ServerSide server) throws IOException {
+            SocketChannel channel = server.tcp.accept();
+            server.tcp.close();
+            return configure(channel);
+        }
+
+        @Override
+        public ByteChannel connect(InetSocketAddress address) throws IOException {
+            return configure(SocketChannel.open(address));
+        }
+
+        private ByteChannel configure(SocketChannel channel) throws IOException {
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            channel.configureBlocking(false);
+            return channel;
+        }
+    },
+    UDP {
+        @Override
+        public ServerSide bind(int port) throws IOException {
+            DatagramChannel channel = DatagramChannel.open();
+            channel.setOption(StandardSocketOptions.SO_RCVBUF, SOCKET_BUFFER_BYTES);
+            channel.setOption(StandardSocketOptions.SO_SNDBUF, SOCKET_BUFFER_BYTES);
+            channel.bind(new InetSocketAddress("localhost", port));
+            return new ServerSide(null, channel);
+        }
+
+        @Override
+        public ByteChannel accept(ServerSide server) throws IOException {
+            // The first datagram tells the server where the client is
+            DatagramChannel channel = server.udp;
+            SocketAddress client = channel.receive(ByteBuffer.allocate(1));
+            channel.connect(client);
+            channel.write(ByteBuffer.allocate(1));
+            channel.configureBlocking(false);
+            return channel;
+        }
+
+        @Override
+        public ByteChannel connect(InetSocketAddress address) throws IOException, InterruptedException {
+            DatagramChannel channel = DatagramChannel.open();
+            channel.setOption(StandardSocketOptions.SO_RCVBUF, SOCKET_BUFFER_BYTES);
+            channel.setOption(StandardSocketOptions.SO_SNDBUF, SOCKET_BUFFER_BYTES);
+            channel.connect(address);
+            channel.configureBlocking(false);
+            // Say hello until the server acknowledges. Both are one byte datagrams, too short to be a frame,
+            // as the JDK does not send empty ones
+            ByteBuffer ack = ByteBuffer.allocate(1);
+            for (int attempt = 0; attempt < 50; attempt++) {
+                channel.write(ByteBuffer.allocate(1));
+                long deadline = System.nanoTime() + 100_000_000L;
+                while (System.nanoTime() < deadline) {
+                    if (channel.receive(ack) != null) {
+                        return channel;
+                    }
+                    Thread.sleep(1);
+                }
+            }
+            channel.close();
+            throw new IOException("No answer from UDP server at " + address);
+        }
+    };
+
+    static final int SOCKET_BUFFER_BYTES = 4 * 1024 * 1024;
+
+    /** Binds the listening side, before the port is handed to the client. */
+    public abstract ServerSide bind(int port) throws IOException;
+
+    /** Waits for the client and returns the channel connected to it. */
+    public abstract ByteChannel accept(ServerSide server) throws IOException;
+
+    public abstract ByteChannel connect(InetSocketAddress address) throws IOException, InterruptedException;
+
+    public static class ServerSide {
+        final ServerSocketChannel tcp;
+        final DatagramChannel udp;
+
+        ServerSide(ServerSocketChannel tcp, DatagramChannel udp) {
+            this.tcp = tcp;
+            this.udp = udp;
+        }
+
+        public int getPort() throws IOException {
+            SocketAddress address = tcp != null ? tcp.getLocalAddress() : udp.getLocalAddress();
+            return ((InetSocketAddress) address).getPort();
+        }
+    }
+}
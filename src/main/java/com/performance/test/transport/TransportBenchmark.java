@@ -0,0 +1,219 @@
+package com.performance.test.transport;
+
+import com.lmax.disruptor.EventHandler;
+import com.lmax.disruptor.RingBuffer;
+import com.lmax.disruptor.Sequence;
+import com.lmax.disruptor.YieldingWaitStrategy;
+import com.lmax.disruptor.dsl.Disruptor;
+import com.lmax.disruptor.dsl.ProducerType;
+import com.lmax.disruptor.util.DaemonThreadFactory;
+import com.performance.test.common.models.Order;
+import com.performance.test.common.models.OrderMessage;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetSocketAddress;
+import java.nio.channels.ByteChannel;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import static com.performance.test.common.CommonConstants.RING_BUFFER_SIZE;
+
+/**
+ * Echoes orders between two JVMs over localhost and reports messages per second and round-trip latency.
+ *
+ * The client publishes orders into an outbound ring drained by a {@link FrameSender}. The server receives
+ * them into its own ring with a {@link FrameReceiver}, and that ring's consumer sends them straight back.
+ * The client receives the echoes into an inbound ring, whose consumer records the time since each order
+ * was published. A throughput phase publishes as fast as the rings allow; a latency phase publishes at a
+ * fixed rate so that the round trip is not dominated by queueing.
+ * Usage:
+ * {@code TransportBenchmark [tcp|udp|both] [messages] [latencyRate]} starts the server in a child JVM,
+ * {@code TransportBenchmark server tcp|udp [port]} and
+ * {@code TransportBenchmark client tcp|udp host port [messages] [latencyRate]} run the two sides separately.
+ */
+public class TransportBenchmark {
+
+    private static final int WARMUP_MESSAGES = 200_000;
+    // A phase ends when every echo is back, or for UDP when nothing arrived for this long
+    private static final long IDLE_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    public static void main(String[] args) throws Exception {
+        String mode = args.length > 0 ? args[0] : "both";
+        if ("server".equals(mode)) {
+            serve(Transport.valueOf(args[1].toUpperCase()), args.length > 2 ? Integer.parseInt(args[2]) : 0);
+        } else if ("client".equals(mode)) {
+            Transport transport = Transport.valueOf(args[1].toUpperCase());
+            InetSocketAddress address = new InetSocketAddress(args[2], Integer.parseInt(args[3]));
+            int messages = args.length > 4 ? Integer.parseInt(args[4]) : 5_000_000;
+            int latencyRate = args.length > 5 ? Integer.parseInt(args[5]) : 50_000;
+            runClient(transport, address, messages, latencyRate);
+        } else {
+            int messages = args.length > 1 ? Integer.parseInt(args[1]) : 5_000_000;
+            int latencyRate = args.length > 2 ? Integer.parseInt(args[2]) : 50_000;
+            for (Transport transport : Transport.values()) {
+                if ("both".equals(mode) || transport.name().equalsIgnoreCase(mode)) {
+                    runLocal(transport, messages, latencyRate);
+                }
+            }
+        }
+    }
+
+    /** Echoes everything received on one connection back to the sender. */
+    private static void serve(Transport transport, int port) throws IOException {
+        Transport.ServerSide serverSide = transport.bind(port);
+        System.out.println("LISTENING " + serverSide.getPort());
+        System.out.flush();
+        ByteChannel channel = transport.accept(serverSide);
+
+        Disruptor<OrderMessage> echo = newDisruptor();
+        FrameSender sender = new FrameSender(channel);
+        echo.handleEventsWith(sender);
+        echo.start();
+        FrameReceiver receiver = new FrameReceiver(channel, transport, echo.getRingBuffer());
+        // UDP has no end of stream, so the server usually ends by being terminated. Standard output only
+        // carries the port to the parent process
+        Runtime.getRuntime().addShutdownHook(new Thread(() ->
+                System.err.println("Server received " + receiver + ", echoed " + sender.getMessagesSent() + " messages")));
+        receiver.run();
+        echo.halt();
+        channel.close();
+    }
+
+    private static void runLocal(Transport transport, int messages, int latencyRate) throws Exception {
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        Process server = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                TransportBenchmark.class.getName(), "server", transport.name().toLowerCase(), "0")
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+        try {
+            BufferedReader output = new BufferedReader(new InputStreamReader(server.getInputStream()));
+            String line = output.readLine();
+            if (line == null || !line.startsWith("LISTENING ")) {
+                throw new IllegalStateException("Server did not start listening: " + line);
+            }
+            int port = Integer.parseInt(line.substring("LISTENING ".length()));
+
+            runClient(transport, new InetSocketAddress("localhost", port), messages, latencyRate);
+            if (!server.waitFor(5, TimeUnit.SECONDS)) {
+                server.destroy();
+                server.waitFor(5, TimeUnit.SECONDS);
+            }
+        } finally {
+            server.destroyForcibly();
+        }
+    }
+
+    private static void runClient(Transport transport, InetSocketAddress address, int messages, int latencyRate)
+            throws Exception {
+        int warmup = Math.min(WARMUP_MESSAGES, messages);
+        int latencyMessages = Math.max(1, Math.min(messages, latencyRate * 5));
+        int total = warmup + messages + latencyMessages;
+        long[] publishNanos = new long[total];
+        long[] roundTripNanos = new long[total];
+        Sequence echoed = new Sequence(0);
+
+        ByteChannel channel = transport.connect(address);
+        Disruptor<OrderMessage> inbound = newDisruptor();
+        inbound.handleEventsWith((EventHandler<OrderMessage>) (message, sequence, endOfBatch) -> {
+            int orderId = message.getOrder().getOrderId();
+            message.clear();
+            roundTripNanos[orderId] = System.nanoTime() - publishNanos[orderId];
+            echoed.set(echoed.get() + 1);
+        });
+        inbound.start();
+        FrameReceiver receiver = new FrameReceiver(channel, transport, inbound.getRingBuffer());
+        Thread receiverThread = DaemonThreadFactory.INSTANCE.newThread(receiver);
+        receiverThread.start();
+
+        Disruptor<OrderMessage> outbound = newDisruptor();
+        FrameSender sender = new FrameSender(channel);
+        outbound.handleEventsWith(sender);
+        outbound.start();
+        RingBuffer<OrderMessage> ringBuffer = outbound.getRingBuffer();
+
+        Phase[] phases = {
+                new Phase("warmup", 0, warmup, 0),
+                new Phase("throughput", warmup, warmup + messages, 0),
+                new Phase(String.format("latency @ %d/s", latencyRate), warmup + messages, total, latencyRate)
+        };
+        for (Phase phase : phases) {
+            long interval = phase.rate == 0 ? 0 : 1_000_000_000L / phase.rate;
+            long start = System.nanoTime();
+            for (int orderId = phase.from; orderId < phase.to; orderId++) {
+                if (interval > 0) {
+                    long due = start + (orderId - phase.from) * interval;
+                    while (System.nanoTime() < due) {
+                        Thread.onSpinWait();
+                    }
+                }
+                Order order = new Order();
+                order.setOrderId(orderId);
+                long sequence = ringBuffer.next();
+                publishNanos[orderId] = System.nanoTime();
+                ringBuffer.get(sequence).setOrder(order);
+                ringBuffer.publish(sequence);
+            }
+
+            long lastCount = echoed.get();
+            long lastProgress = System.nanoTime();
+            while (echoed.get() < phase.to && System.nanoTime() - lastProgress < IDLE_TIMEOUT_NANOS) {
+                Thread.sleep(1);
+                if (echoed.get() != lastCount) {
+                    lastCount = echoed.get();
+                    lastProgress = System.nanoTime();
+                }
+            }
+            if (phase != phases[0]) {
+                report(transport, phase, Arrays.copyOfRange(roundTripNanos, phase.from, phase.to), lastProgress - start);
+            }
+        }
+
+        receiver.stop();
+        receiverThread.join(1_000);
+        outbound.halt();
+        inbound.halt();
+        channel.close();
+        System.out.println(String.format("%s client received %s, sent %d frames", transport, receiver, sender.getFramesSent()));
+    }
+
+    private static void report(Transport transport, Phase phase, long[] roundTrips, long durationNanos) {
+        long[] received = Arrays.stream(roundTrips).filter(rtt -> rtt > 0).sorted().toArray();
+        int sent = phase.to - phase.from;
+        if (received.length == 0) {
+            System.out.println(String.format("%s %-16s : no echoes received for %d messages", transport, phase.name, sent));
+            return;
+        }
+        System.out.println(String.format("%s %-16s : %.0f msg/s, %d of %d echoed (%.2f %% lost), "
+                        + "RTT p50 %.1f us, p99 %.1f us, p99.9 %.1f us, max %.1f us",
+                transport, phase.name, received.length / (durationNanos / 1e9), received.length, sent,
+                (sent - received.length) * 100.0 / sent,
+                received[received.length / 2] / 1e3, received[(int) (received.length * 0.99)] / 1e3,
+                received[(int) (received.length * 0.999)] / 1e3, received[received.length - 1] / 1e3));
+    }
+
+    private static Disruptor<OrderMessage> newDisruptor() {
+        return new Disruptor<>(
+                OrderMessage.EVENT_FACTORY,
+                RING_BUFFER_SIZE,
+                DaemonThreadFactory.INSTANCE,
+                ProducerType.SINGLE,
+                new YieldingWaitStrategy());
+    }
+
+    private static class Phase {
+        final String name;
+        final int from;
+        final int to;
+        final int rate;
+
+        Phase(String name, int from, int to, int rate) {
+            this.name = name;
+            this.from = from;
+            this.to = to;
+            this.rate = rate;
+        }
+    }
+}
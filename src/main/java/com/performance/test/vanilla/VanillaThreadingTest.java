@@ -1,21 +1,30 @@
 package com.performance.test.vanilla;
 
 import com.performance.test.common.models.Order;
+import com.performance.test.common.profiling.RunProfiler;
+import com.performance.test.common.profiling.RunProfiler.Role;
 import com.performance.test.vanilla.consumer.VanillaConsumer;
 import com.performance.test.vanilla.producer.VanillaProducer;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentLinkedQueue;
 
+import static com.performance.test.common.CommonConstants.MESSAGE_COUNT;
 import static com.performance.test.common.CommonConstants.ONE_BILLION;
 
 public class VanillaThreadingTest {
 
     public static void main(String[] args) {
+        // Pass --profile to report allocation per role and GC activity over the timed window
+        RunProfiler profiler = Arrays.asList(args).contains("--profile") ? new RunProfiler() : null;
 
         long start = System.nanoTime();
+        if (profiler != null) {
+            profiler.start();
+        }
         ConcurrentLinkedQueue<Order> queue = new ConcurrentLinkedQueue<>();
         VanillaConsumer consumer = new VanillaConsumer(queue);
         VanillaProducer producer = new VanillaProducer(queue);
@@ -25,14 +34,26 @@ public class VanillaThreadingTest {
 
         //Start 20 producers and 20 consumers
         for(int i=0; i< 20; i++) {
-            producerThreads.add(CompletableFuture.runAsync(producer::publishOrder));
-            consumerThreads.add(CompletableFuture.runAsync(consumer::consume));
+            producerThreads.add(CompletableFuture.runAsync(track(profiler, Role.PRODUCER, producer::publishOrder)));
+            consumerThreads.add(CompletableFuture.runAsync(track(profiler, Role.CONSUMER, consumer::consume)));
         }
         CompletableFuture.allOf(producerThreads.toArray(new CompletableFuture[0])).join();
         CompletableFuture.allOf(consumerThreads.toArray(new CompletableFuture[0])).join();
-        double duration = (double) (System.nanoTime() - start) / ONE_BILLION;
+        // Stopping the profiler collects its results, which is not part of the timed run
+        long end = System.nanoTime();
+        if (profiler != null) {
+            profiler.stop();
+        }
+        double duration = (double) (end - start) / ONE_BILLION;
         String message = String.format("Total duration : %.2f", duration);
         System.out.println(message);
+        if (profiler != null) {
+            System.out.print(profiler.summary(MESSAGE_COUNT));
+        }
+
+    }
 
+    private static Runnable track(RunProfiler profiler, Role role, Runnable task) {
+        return profiler == null ? task : profiler.track(role, task);
     }
 }
@@ -1,89 +1,288 @@
 package spoon;
 
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
 import org.eclipse.jdt.core.dom.*;
 
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Collects declaration, call and operator metrics for every Java file under a source tree.
+ *
+ * Files are split into one batch per thread and each batch is parsed with a single
+ * {@link ASTParser#createASTs} call over the same environment, so the name environment is built once
+ * per batch instead of once per file. Trees are visited as soon as they are produced and then dropped;
+ * only the counters are kept.
+ * Usage: {@code ASTProcessor [sourceDir] [output.csv|output.json] [threads]}.
+ */
 public class ASTProcessor {
-    public static void main(String[] args) {
-        // The source code to analyze
-        String sourceCode = "" +
-                " public void test_call()\n" +
-                "    {\n" +
-                "        // This string cannot be parsed as a number\n" +
-                "        String invalidNumber = \"abc123\";\n" +
-                "\n" +
-                "        // Attempt to parse the non-numeric string\n" +
-                "        int number = Integer.parseInt(invalidNumber);\n" +
-                "\n" +
-                "        System.out.println(\"Parsed number: \" + number);\n" +
-                "    }";
-
-        // Create AST parser
-        ASTParser parser = ASTParser.newParser(AST.JLS15);
-        parser.setSource(sourceCode.toCharArray());
-        parser.setKind(ASTParser.K_COMPILATION_UNIT);
+    private static final Gson gson = new GsonBuilder().setPrettyPrinting().create();
 
-        // Parse and get the AST
-        CompilationUnit cu = (CompilationUnit) parser.createAST(null);
+    private final String[] classpath;
+    private final String[] sourcepath;
+    private final int threads;
 
-        // Create visitor to analyze the AST
-        cu.accept(new ASTVisitor() {
-            // Track variable declarations
-            int variableCount = 0;
-            int methodCallCount = 0;
+    /** A thread count of 0 or less uses one thread per available processor. */
+    public ASTProcessor(String[] classpath, String[] sourcepath, int threads) {
+        this.classpath = classpath;
+        this.sourcepath = sourcepath;
+        this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+    }
 
-            @Override
-            public boolean visit(TypeDeclaration node) {
-                System.out.println("Class Declaration: " + node.getName());
-                return true; // continue visiting child nodes
+    public static void main(String[] args) throws Exception {
+        Path sourceDir = Path.of(args.length > 0 ? args[0] : "src/main/java");
+        Path output = args.length > 1 ? Path.of(args[1]) : null;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : 0;
+
+        ASTProcessor processor = new ASTProcessor(new String[0], new String[]{sourceDir.toString()}, threads);
+        long start = System.nanoTime();
+        List<FileMetrics> metrics = processor.analyze(sourceDir);
+        double duration = (double) (System.nanoTime() - start) / 1_000_000_000;
+
+        if (output == null) {
+            try (Writer writer = new OutputStreamWriter(System.out, StandardCharsets.UTF_8)) {
+                writeCsv(metrics, writer);
+            }
+        } else {
+            try (Writer writer = Files.newBufferedWriter(output)) {
+                if (output.toString().endsWith(".json")) {
+                    writeJson(metrics, writer);
+                } else {
+                    writeCsv(metrics, writer);
+                }
             }
+        }
+        System.err.println(String.format("Analyzed %d files in %.2f s with %d threads", metrics.size(), duration, processor.threads));
+    }
 
-            @Override
-            public boolean visit(MethodDeclaration node) {
-                System.out.println("\nMethod Declaration: " + node.getName());
-                System.out.println("Parameters: " + node.parameters());
-                return true;
+    /** Parses every {@code .java} file under {@code sourceDir} and returns the metrics sorted by path. */
+    public List<FileMetrics> analyze(Path sourceDir) throws Exception {
+        List<String> files;
+        try (Stream<Path> paths = Files.walk(sourceDir)) {
+            files = paths.filter(p -> p.toString().endsWith(".java"))
+                    .map(Path::toString)
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+
+        // Round robin keeps batches balanced when neighbouring files have similar sizes
+        List<List<String>> batches = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            batches.add(new ArrayList<>());
+        }
+        for (int i = 0; i < files.size(); i++) {
+            batches.get(i % threads).add(files.get(i));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<List<FileMetrics>>> results = new ArrayList<>();
+            for (List<String> batch : batches) {
+                results.add(executor.submit(() -> analyzeBatch(batch)));
+            }
+            List<FileMetrics> metrics = new ArrayList<>(files.size());
+            for (Future<List<FileMetrics>> result : results) {
+                metrics.addAll(result.get());
             }
+            metrics.sort(Comparator.comparing(m -> m.path));
+            return metrics;
+        } finally {
+            executor.shutdown();
+        }
+    }
 
+    private List<FileMetrics> analyzeBatch(List<String> files) {
+        List<FileMetrics> metrics = new ArrayList<>(files.size());
+        if (files.isEmpty()) {
+            return metrics;
+        }
+        ASTParser parser = ASTUpdater.newParser();
+        parser.setKind(ASTParser.K_COMPILATION_UNIT);
+        parser.setEnvironment(classpath, sourcepath, null, true);
+        parser.createASTs(files.toArray(new String[0]), null, new String[0], new FileASTRequestor() {
             @Override
-            public boolean visit(VariableDeclarationStatement node) {
-                variableCount++;
-                System.out.println("\nVariable Declaration #" + variableCount + ":");
-                for (Object fragment : node.fragments()) {
-                    VariableDeclarationFragment vdf = (VariableDeclarationFragment) fragment;
-                    System.out.println("  Name: " + vdf.getName());
-                    System.out.println("  Type: " + node.getType());
-                    if (vdf.getInitializer() != null) {
-                        System.out.println("  Initializer: " + vdf.getInitializer());
-                    }
+            public void acceptAST(String sourceFilePath, CompilationUnit ast) {
+                FileMetrics fileMetrics = new FileMetrics(sourceFilePath);
+                ast.accept(new MetricsVisitor(ast, fileMetrics));
+                metrics.add(fileMetrics);
+            }
+        }, null);
+        return metrics;
+    }
+
+    /** Parses a single snippet, used for ad-hoc analysis outside a source tree. */
+    public static FileMetrics analyzeSource(String name, String sourceCode) {
+        ASTParser parser = ASTUpdater.newParser();
+        parser.setSource(sourceCode.toCharArray());
+        parser.setKind(ASTParser.K_COMPILATION_UNIT);
+        CompilationUnit cu = (CompilationUnit) parser.createAST(null);
+        FileMetrics fileMetrics = new FileMetrics(name);
+        cu.accept(new MetricsVisitor(cu, fileMetrics));
+        return fileMetrics;
+    }
+
+    public static void writeJson(List<FileMetrics> metrics, Writer writer) {
+        gson.toJson(metrics, writer);
+    }
+
+    public static void writeCsv(List<FileMetrics> metrics, Writer writer) {
+        try {
+            writer.write("scope,path,type,method,line,types,methods,variables,methodCalls,infixExpressions,statements\n");
+            for (FileMetrics file : metrics) {
+                writer.write("FILE," + csvField(file.path) + ",,,," + file.types + "," + file.methods + "," + file.variables
+                        + "," + file.methodCalls + "," + file.infixExpressions + "," + file.statements + "\n");
+                for (MethodMetrics method : file.methodMetrics) {
+                    writer.write("METHOD," + csvField(file.path) + "," + method.type + "," + method.name + "," + method.line
+                            + ",0,1," + method.variables + "," + method.methodCalls + "," + method.infixExpressions
+                            + "," + method.statements + "\n");
                 }
-                return true;
             }
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
 
-            @Override
-            public boolean visit(MethodInvocation node) {
-                methodCallCount++;
-                System.out.println("\nMethod Call #" + methodCallCount + ":");
-                System.out.println("  Name: " + node.getName());
-                System.out.println("  Expression: " + node.getExpression());
-                System.out.println("  Arguments: " + node.arguments());
-                return true;
+    /** Quotes a value that contains a separator, quote or line break, doubling embedded quotes. */
+    private static String csvField(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    public static class FileMetrics {
+        final String path;
+        int types;
+        int methods;
+        int variables;
+        int methodCalls;
+        int infixExpressions;
+        int statements;
+        final List<MethodMetrics> methodMetrics = new ArrayList<>();
+
+        FileMetrics(String path) {
+            this.path = path;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        public List<MethodMetrics> getMethodMetrics() {
+            return methodMetrics;
+        }
+    }
+
+    public static class MethodMetrics {
+        final String type;
+        final String name;
+        final int line;
+        int variables;
+        int methodCalls;
+        int infixExpressions;
+        int statements;
+
+        MethodMetrics(String type, String name, int line) {
+            this.type = type;
+            this.name = name;
+            this.line = line;
+        }
+    }
+
+    /**
+     * Counts into the file metrics and into the innermost enclosing method, if any.
+     */
+    private static class MetricsVisitor extends ASTVisitor {
+        private final CompilationUnit cu;
+        private final FileMetrics file;
+        private final Deque<String> typeNames = new ArrayDeque<>();
+        private final Deque<MethodMetrics> methods = new ArrayDeque<>();
+
+        MetricsVisitor(CompilationUnit cu, FileMetrics file) {
+            this.cu = cu;
+            this.file = file;
+        }
+
+        @Override
+        public boolean visit(TypeDeclaration node) {
+            file.types++;
+            typeNames.push(node.getName().getIdentifier());
+            return true;
+        }
+
+        @Override
+        public void endVisit(TypeDeclaration node) {
+            typeNames.pop();
+        }
+
+        @Override
+        public boolean visit(MethodDeclaration node) {
+            file.methods++;
+            MethodMetrics method = new MethodMetrics(typeNames.isEmpty() ? "" : typeNames.peek(),
+                    node.getName().getIdentifier(), cu.getLineNumber(node.getStartPosition()));
+            file.methodMetrics.add(method);
+            methods.push(method);
+            return true;
+        }
+
+        @Override
+        public void endVisit(MethodDeclaration node) {
+            methods.pop();
+        }
+
+        @Override
+        public boolean visit(VariableDeclarationStatement node) {
+            int fragments = node.fragments().size();
+            file.variables += fragments;
+            if (!methods.isEmpty()) {
+                methods.peek().variables += fragments;
             }
+            return true;
+        }
 
-            @Override
-            public boolean visit(InfixExpression node) {
-                System.out.println("\nBinary Operation:");
-                System.out.println("  Left Operand: " + node.getLeftOperand());
-                System.out.println("  Operator: " + node.getOperator());
-                System.out.println("  Right Operand: " + node.getRightOperand());
-                return true;
+        @Override
+        public boolean visit(MethodInvocation node) {
+            file.methodCalls++;
+            if (!methods.isEmpty()) {
+                methods.peek().methodCalls++;
             }
+            return true;
+        }
 
-            @Override
-            public void endVisit(CompilationUnit node) {
-                System.out.println("\nSummary:");
-                System.out.println("  Total variables declared: " + variableCount);
-                System.out.println("  Total method calls: " + methodCallCount);
+        @Override
+        public boolean visit(InfixExpression node) {
+            file.infixExpressions++;
+            if (!methods.isEmpty()) {
+                methods.peek().infixExpressions++;
+            }
+            return true;
+        }
+
+        @Override
+        public void preVisit(ASTNode node) {
+            if (node instanceof Statement && !(node instanceof Block)) {
+                file.statements++;
+                if (!methods.isEmpty()) {
+                    methods.peek().statements++;
+                }
             }
-        });
+        }
     }
 }
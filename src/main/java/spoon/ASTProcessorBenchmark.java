@@ -0,0 +1,71 @@
+package spoon;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures {@link ASTProcessor} throughput in files per second for increasing thread counts, and compares
+ * plain JDT parsing with building a Spoon model of the same tree.
+ * Usage: {@code ASTProcessorBenchmark [sourceDir]}, a generated 5000 file tree by default.
+ */
+public class ASTProcessorBenchmark {
+    private static final int GENERATED_FILES = 5_000;
+    private static final int REPETITIONS = 3;
+
+    public static void main(String[] args) throws Exception {
+        Path generated = null;
+        Path sourceDir;
+        if (args.length > 0) {
+            sourceDir = Path.of(args[0]);
+        } else {
+            generated = Files.createTempDirectory("ast-processor-benchmark");
+            sourceDir = generated;
+            ModelCacheBenchmark.generateSources(sourceDir, GENERATED_FILES);
+        }
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        List<Integer> threadCounts = new ArrayList<>();
+        for (int threads = 1; threads < cores; threads *= 2) {
+            threadCounts.add(threads);
+        }
+        threadCounts.add(cores);
+
+        // Warm up the JIT before any measured run
+        int files = new ASTProcessor(new String[0], new String[]{sourceDir.toString()}, cores).analyze(sourceDir).size();
+        System.out.println("Files : " + files + ", cores : " + cores);
+
+        for (int threads : threadCounts) {
+            ASTProcessor processor = new ASTProcessor(new String[0], new String[]{sourceDir.toString()}, threads);
+            long best = Long.MAX_VALUE;
+            for (int i = 0; i < REPETITIONS; i++) {
+                long start = System.nanoTime();
+                processor.analyze(sourceDir);
+                best = Math.min(best, System.nanoTime() - start);
+            }
+            report("JDT createASTs, " + threads + " threads", files, best);
+        }
+
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < REPETITIONS; i++) {
+            Launcher launcher = new Launcher();
+            launcher.addInputResource(sourceDir.toString());
+            launcher.getEnvironment().setNoClasspath(true);
+            launcher.getEnvironment().setComplianceLevel(11);
+            long start = System.nanoTime();
+            launcher.buildModel();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        report("Spoon buildModel", files, best);
+
+        if (generated != null) {
+            ModelCacheBenchmark.deleteRecursively(generated);
+        }
+    }
+
+    private static void report(String scenario, int files, long nanos) {
+        double seconds = (double) nanos / 1_000_000_000;
+        System.out.println(String.format("%-28s : %.2f s, %.0f files/sec", scenario, seconds, files / seconds));
+    }
+}
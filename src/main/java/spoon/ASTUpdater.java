@@ -5,12 +5,24 @@ import org.eclipse.jdt.core.dom.rewrite.*;
 import org.eclipse.jface.text.Document;
 import org.eclipse.text.edits.*;
 import java.util.*;
+import java.util.stream.Collectors;
 
 public class ASTUpdater {
-    private static AST ast;
-
+    // Override with -Dastupdater.parseCacheSize=N, 0 disables the cache
+    private static final int DEFAULT_PARSE_CACHE_SIZE = 64;
+    private static volatile int parseCacheSize = Integer.getInteger("astupdater.parseCacheSize", DEFAULT_PARSE_CACHE_SIZE);
+
+    // Parsed units keyed by content hash, least recently used evicted first. Only pays off when the same
+    // sources are merged repeatedly, each entry holds two full trees.
+    private static final Map<String, ParsedUnit> parseCache = Collections.synchronizedMap(
+            new LinkedHashMap<String, ParsedUnit>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, ParsedUnit> eldest) {
+                    return size() > parseCacheSize;
+                }
+            });
 
-    public static void main(String[] args) {
+    public static void main(String[] args) throws Exception {
         String baseCode = "public class Calculator {\n" +
                 "    private int total;\n" +
                 "    public int add(int a, int b) {\n" +
@@ -34,47 +46,86 @@ public class ASTUpdater {
                 "}";
 
         String updatedCode = applyLLMChanges(baseCode, llmCode);
+
+        // Check that the merged class still compiles before printing it
+        CompileVerifier.Result verification;
+        try (CompileVerifier verifier = CompileVerifier.forCurrentClasspath()) {
+            verification = verifier.verify("Calculator", Map.of("Calculator", updatedCode));
+        }
+        System.out.println(verification);
+        if (!verification.isSuccess()) {
+            System.exit(1);
+        }
         System.out.println(updatedCode);
     }
 
     public static String applyLLMChanges(String baseCode, String llmCode) {
-        // Parse both code versions
-        CompilationUnit baseAST = parseAST(baseCode);
-        CompilationUnit llmAST = parseAST(llmCode);
-
-        // Initialize the AST reference
-        ast = baseAST.getAST();
-
-        // Create rewriter for the base code
-        ASTRewrite rewriter = ASTRewrite.create(ast);
-
-        // Process all code elements
-        updateImports(baseAST, llmAST, rewriter);
-        updateTypeDeclarations(baseAST, llmAST, rewriter);
+        return applyLLMChanges(baseCode, llmCode, UpdateMode.REPLACE);
+    }
 
+    public static String applyLLMChanges(String baseCode, String llmCode, UpdateMode mode) {
         // Apply changes
         try {
             Document document = new Document(baseCode);
-            TextEdit edits = rewriter.rewriteAST(document, null);
-            edits.apply(document);
+            computeEdits(baseCode, llmCode, mode).apply(document);
             return document.get();
         } catch (Exception e) {
             throw new RuntimeException("Failed to apply changes", e);
         }
     }
 
-    private static void updateImports(CompilationUnit baseAST, CompilationUnit llmAST, ASTRewrite rewriter) {
-        Set<String> existingImports = new HashSet<>();
-        for (Object imp : baseAST.imports()) {
-            existingImports.add(((ImportDeclaration) imp).getName().getFullyQualifiedName());
+    /**
+     * Applies many base/LLM pairs in parallel. Results are returned in the order of the input.
+     */
+    public static List<String> applyLLMChanges(List<ChangePair> changes) {
+        return applyLLMChanges(changes, UpdateMode.REPLACE);
+    }
+
+    public static List<String> applyLLMChanges(List<ChangePair> changes, UpdateMode mode) {
+        return changes.parallelStream()
+                .map(change -> applyLLMChanges(change.getBaseCode(), change.getLlmCode(), mode))
+                .collect(Collectors.toList());
+    }
+
+    static TextEdit computeEdits(String baseCode, String llmCode, UpdateMode mode) {
+        // Parse both code versions, reusing trees for content seen before
+        ParsedUnit base = parse(baseCode);
+        ParsedUnit llm = parse(llmCode);
+
+        // Cached trees are shared between callers and copied nodes are allocated in the base AST
+        synchronized (base.ast) {
+            // Create rewriter for the base code
+            ASTRewrite rewriter = ASTRewrite.create(base.ast);
+
+            // Process all code elements
+            updateImports(base, llm, rewriter);
+            updateTypeDeclarations(base, llm, rewriter, mode);
+
+            return rewriter.rewriteAST(new Document(baseCode), null);
         }
+    }
 
-        ListRewrite importRewriter = rewriter.getListRewrite(baseAST, CompilationUnit.IMPORTS_PROPERTY);
-        for (Object imp : llmAST.imports()) {
+    static void clearParseCache() {
+        parseCache.clear();
+    }
+
+    /** Sets the number of parsed units kept, 0 turns caching off. */
+    static void setParseCacheSize(int size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("Cache size must not be negative: " + size);
+        }
+        parseCacheSize = size;
+        parseCache.clear();
+    }
+
+    private static void updateImports(ParsedUnit base, ParsedUnit llm, ASTRewrite rewriter) {
+        AST ast = base.ast;
+        ListRewrite importRewriter = rewriter.getListRewrite(base.unit, CompilationUnit.IMPORTS_PROPERTY);
+        for (Object imp : llm.unit.imports()) {
             ImportDeclaration llmImport = (ImportDeclaration) imp;
             String importName = llmImport.getName().getFullyQualifiedName();
 
-            if (!existingImports.contains(importName)) {
+            if (!base.imports.contains(importName)) {
                 ImportDeclaration newImport = ast.newImportDeclaration();
                 newImport.setName(ast.newName(importName.split("\\.")));
                 newImport.setStatic(llmImport.isStatic());
@@ -83,12 +134,13 @@ public class ASTUpdater {
         }
     }
 
-    private static void updateTypeDeclarations(CompilationUnit baseAST, CompilationUnit llmAST, ASTRewrite rewriter) {
-        TypeDeclaration baseType = (TypeDeclaration) baseAST.types().get(0);
-        TypeDeclaration llmType = (TypeDeclaration) llmAST.types().get(0);
+    private static void updateTypeDeclarations(ParsedUnit base, ParsedUnit llm, ASTRewrite rewriter, UpdateMode mode) {
+        AST ast = base.ast;
+        TypeDeclaration baseType = base.type;
+        TypeDeclaration llmType = llm.type;
 
         // Update type modifiers using standard API
-        updateModifiers(baseType, llmType, rewriter);
+        updateModifiers(ast, baseType, llmType, rewriter);
 
         // Update type documentation (Javadoc)
         if (llmType.getJavadoc() != null) {
@@ -97,27 +149,22 @@ public class ASTUpdater {
         }
 
         // Update all members
-        updateFields(baseType, llmType, rewriter);
-        updateMethods(baseType, llmType, rewriter);
-        updateInnerTypes(baseType, llmType, rewriter);
+        updateFields(base, llm, rewriter);
+        updateMethods(base, llm, rewriter, mode);
+        updateInnerTypes(base, llm, rewriter);
     }
 
-    private static void updateInnerTypes(TypeDeclaration baseType, TypeDeclaration llmType, ASTRewrite rewriter) {
-        Set<String> existingInnerTypes = new HashSet<>();
-        for (AbstractTypeDeclaration type : baseType.getTypes()) {
-            existingInnerTypes.add(type.getName().getIdentifier());
-        }
-
-        ListRewrite typeRewriter = rewriter.getListRewrite(baseType, TypeDeclaration.BODY_DECLARATIONS_PROPERTY);
-        for (AbstractTypeDeclaration llmInnerType : llmType.getTypes()) {
-            if (!existingInnerTypes.contains(llmInnerType.getName().getIdentifier())) {
-                AbstractTypeDeclaration newType = (AbstractTypeDeclaration) ASTNode.copySubtree(ast, llmInnerType);
+    private static void updateInnerTypes(ParsedUnit base, ParsedUnit llm, ASTRewrite rewriter) {
+        ListRewrite typeRewriter = rewriter.getListRewrite(base.type, TypeDeclaration.BODY_DECLARATIONS_PROPERTY);
+        for (AbstractTypeDeclaration llmInnerType : llm.type.getTypes()) {
+            if (!base.innerTypes.contains(llmInnerType.getName().getIdentifier())) {
+                AbstractTypeDeclaration newType = (AbstractTypeDeclaration) ASTNode.copySubtree(base.ast, llmInnerType);
                 typeRewriter.insertLast(newType, null);
             }
         }
     }
 
-    private static void updateModifiers(TypeDeclaration baseType, TypeDeclaration llmType, ASTRewrite rewriter) {
+    private static void updateModifiers(AST ast, TypeDeclaration baseType, TypeDeclaration llmType, ASTRewrite rewriter) {
         // Get the property name for modifiers list
         StructuralPropertyDescriptor modifiersProperty =
                 baseType.getAST().apiLevel() >= AST.JLS8
@@ -140,59 +187,54 @@ public class ASTUpdater {
         }
     }
 
-    private static void updateFields(TypeDeclaration baseType, TypeDeclaration llmType, ASTRewrite rewriter) {
-        Set<String> existingFields = new HashSet<>();
-        for (FieldDeclaration field : baseType.getFields()) {
-            for (Object frag : field.fragments()) {
-                existingFields.add(((VariableDeclarationFragment) frag).getName().getIdentifier());
-            }
-        }
-
-        ListRewrite fieldRewriter = rewriter.getListRewrite(baseType,
+    private static void updateFields(ParsedUnit base, ParsedUnit llm, ASTRewrite rewriter) {
+        ListRewrite fieldRewriter = rewriter.getListRewrite(base.type,
                 TypeDeclaration.BODY_DECLARATIONS_PROPERTY);
 
-        for (FieldDeclaration llmField : llmType.getFields()) {
+        for (FieldDeclaration llmField : llm.type.getFields()) {
             boolean isNewField = false;
             for (Object frag : llmField.fragments()) {
                 String fieldName = ((VariableDeclarationFragment) frag).getName().getIdentifier();
-                if (!existingFields.contains(fieldName)) {
+                if (!base.fields.contains(fieldName)) {
                     isNewField = true;
                     break;
                 }
             }
 
             if (isNewField) {
-                FieldDeclaration newField = (FieldDeclaration) ASTNode.copySubtree(ast, llmField);
+                FieldDeclaration newField = (FieldDeclaration) ASTNode.copySubtree(base.ast, llmField);
                 fieldRewriter.insertLast(newField, null);
             }
         }
     }
 
-    private static void updateMethods(TypeDeclaration baseType, TypeDeclaration llmType, ASTRewrite rewriter) {
-        Map<String, MethodDeclaration> existingMethods = new HashMap<>();
-        for (MethodDeclaration method : baseType.getMethods()) {
-            existingMethods.put(getMethodSignature(method), method);
-        }
-
-        ListRewrite methodRewriter = rewriter.getListRewrite(baseType,
+    private static void updateMethods(ParsedUnit base, ParsedUnit llm, ASTRewrite rewriter, UpdateMode mode) {
+        AST ast = base.ast;
+        ListRewrite methodRewriter = rewriter.getListRewrite(base.type,
                 TypeDeclaration.BODY_DECLARATIONS_PROPERTY);
 
-        for (MethodDeclaration llmMethod : llmType.getMethods()) {
-            String methodSig = getMethodSignature(llmMethod);
-            if (!existingMethods.containsKey(methodSig)) {
+        for (Map.Entry<String, MethodDeclaration> llmEntry : llm.methods.entrySet()) {
+            MethodDeclaration llmMethod = llmEntry.getValue();
+            MethodDeclaration existingMethod = base.methods.get(llmEntry.getKey());
+            if (existingMethod == null) {
                 // Add new method
                 MethodDeclaration newMethod = (MethodDeclaration) ASTNode.copySubtree(ast, llmMethod);
                 methodRewriter.insertLast(newMethod, null);
             } else {
-                // Update existing method
-                MethodDeclaration existingMethod = existingMethods.get(methodSig);
-
                 // Update return type if changed
-                if (!llmMethod.getReturnType2().toString().equals(existingMethod.getReturnType2().toString())) {
-                    Type newType = (Type) ASTNode.copySubtree(ast, llmMethod.getReturnType2());
+                Type llmReturnType = llmMethod.getReturnType2();
+                Type existingReturnType = existingMethod.getReturnType2();
+                if (llmReturnType != null && existingReturnType != null
+                        && !typeText(llmReturnType, llm.source).equals(typeText(existingReturnType, base.source))) {
+                    Type newType = (Type) ASTNode.copySubtree(ast, llmReturnType);
                     rewriter.set(existingMethod, MethodDeclaration.RETURN_TYPE2_PROPERTY, newType, null);
                 }
 
+                if (mode == UpdateMode.STRUCTURAL_DIFF) {
+                    diffMethod(existingMethod, llmMethod, rewriter);
+                    continue;
+                }
+
                 // Update method body
                 if (llmMethod.getBody() != null) {
                     Block newBody = (Block) ASTNode.copySubtree(ast, llmMethod.getBody());
@@ -214,20 +256,139 @@ public class ASTUpdater {
         }
     }
 
-    private static String getMethodSignature(MethodDeclaration method) {
+    // Rewrites only the statements and parameters that differ instead of replacing them wholesale
+    private static void diffMethod(MethodDeclaration existingMethod, MethodDeclaration llmMethod, ASTRewrite rewriter) {
+        StructuralDiff diff = new StructuralDiff(rewriter);
+        if (llmMethod.getBody() != null) {
+            if (existingMethod.getBody() != null) {
+                diff.diff(existingMethod.getBody(), llmMethod.getBody());
+            } else {
+                Block newBody = (Block) ASTNode.copySubtree(rewriter.getAST(), llmMethod.getBody());
+                rewriter.set(existingMethod, MethodDeclaration.BODY_PROPERTY, newBody, null);
+            }
+        }
+        if (llmMethod.parameters().size() == existingMethod.parameters().size()) {
+            for (int i = 0; i < llmMethod.parameters().size(); i++) {
+                diff.diff((ASTNode) existingMethod.parameters().get(i), (ASTNode) llmMethod.parameters().get(i));
+            }
+        }
+    }
+
+    private static String getMethodSignature(MethodDeclaration method, String source) {
         StringBuilder sb = new StringBuilder(method.getName().getIdentifier());
         sb.append("(");
         for (Object param : method.parameters()) {
             SingleVariableDeclaration p = (SingleVariableDeclaration) param;
-            sb.append(p.getType().toString()).append(",");
+            appendTypeText(sb, p.getType(), source).append(",");
         }
         sb.append(")");
         return sb.toString();
     }
 
-    private static CompilationUnit parseAST(String code) {
-        ASTParser parser = ASTParser.newParser(AST.JLS15);
+    private static String typeText(Type type, String source) {
+        return appendTypeText(new StringBuilder(), type, source).toString();
+    }
+
+    // Reads the type from the source range instead of Type.toString(), which re-flattens the subtree
+    private static StringBuilder appendTypeText(StringBuilder sb, Type type, String source) {
+        int end = type.getStartPosition() + type.getLength();
+        for (int i = type.getStartPosition(); i < end; i++) {
+            char c = source.charAt(i);
+            if (!Character.isWhitespace(c)) {
+                sb.append(c);
+            }
+        }
+        return sb;
+    }
+
+    private static ParsedUnit parse(String code) {
+        if (parseCacheSize == 0) {
+            return new ParsedUnit(code, parseAST(code));
+        }
+        String key = ContentHash.of(code);
+        ParsedUnit parsed = parseCache.get(key);
+        if (parsed == null) {
+            parsed = new ParsedUnit(code, parseAST(code));
+            parseCache.put(key, parsed);
+        }
+        return parsed;
+    }
+
+    static CompilationUnit parseAST(String code) {
+        ASTParser parser = newParser();
         parser.setSource(code.toCharArray());
         return (CompilationUnit) parser.createAST(null);
     }
-}
\ No newline at end of file
+
+    /** A parser at the language level every tree in this package is built with. */
+    static ASTParser newParser() {
+        return ASTParser.newParser(AST.JLS15);
+    }
+
+    /**
+     * How a method present in both versions is brought in line with the LLM version.
+     */
+    public enum UpdateMode {
+        /** Replace the whole body and every parameter. */
+        REPLACE,
+        /** Rewrite only the subtrees that differ, see {@link StructuralDiff}. */
+        STRUCTURAL_DIFF
+    }
+
+    /**
+     * A base and LLM version of the same compilation unit.
+     */
+    public static class ChangePair {
+        private final String baseCode;
+        private final String llmCode;
+
+        public ChangePair(String baseCode, String llmCode) {
+            this.baseCode = baseCode;
+            this.llmCode = llmCode;
+        }
+
+        public String getBaseCode() {
+            return baseCode;
+        }
+
+        public String getLlmCode() {
+            return llmCode;
+        }
+    }
+
+    /**
+     * A parsed compilation unit with the member indexes used for matching, built once per content hash.
+     */
+    private static final class ParsedUnit {
+        final String source;
+        final CompilationUnit unit;
+        final AST ast;
+        final TypeDeclaration type;
+        final Set<String> imports = new HashSet<>();
+        final Set<String> fields = new HashSet<>();
+        final Set<String> innerTypes = new HashSet<>();
+        final Map<String, MethodDeclaration> methods = new LinkedHashMap<>();
+
+        ParsedUnit(String source, CompilationUnit unit) {
+            this.source = source;
+            this.unit = unit;
+            this.ast = unit.getAST();
+            this.type = (TypeDeclaration) unit.types().get(0);
+
+            for (Object imp : unit.imports()) {
+                imports.add(((ImportDeclaration) imp).getName().getFullyQualifiedName());
+            }
+            for (FieldDeclaration field : type.getFields()) {
+                for (Object frag : field.fragments()) {
+                    fields.add(((VariableDeclarationFragment) frag).getName().getIdentifier());
+                }
+            }
+            for (AbstractTypeDeclaration innerType : type.getTypes()) {
+                innerTypes.add(innerType.getName().getIdentifier());
+            }
+            for (MethodDeclaration method : type.getMethods()) {
+                methods.putIfAbsent(getMethodSignature(method, source), method);
+            }
+        }
+    }
+}
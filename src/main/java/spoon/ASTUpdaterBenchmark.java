@@ -0,0 +1,100 @@
+package spoon;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures {@link ASTUpdater} throughput in snippets per second, sequential and through the parallel batch
+ * API, with the parse cache turned off and with it sized to hold every distinct snippet.
+ * Usage: {@code ASTUpdaterBenchmark [snippetCount] [distinctBases]}.
+ */
+public class ASTUpdaterBenchmark {
+    private static final int WARMUP_ROUNDS = 3;
+
+    public static void main(String[] args) {
+        int snippetCount = args.length > 0 ? Integer.parseInt(args[0]) : 5_000;
+        int distinctBases = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+        List<ASTUpdater.ChangePair> changes = generateChanges(snippetCount, distinctBases);
+
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            ASTUpdater.setParseCacheSize(0);
+            runSequential(changes);
+            ASTUpdater.applyLLMChanges(changes);
+        }
+
+        // Each distinct base and LLM snippet once, so a warm pass parses nothing
+        int distinctSnippets = distinctBases * 5;
+        for (int cacheSize : new int[]{0, distinctSnippets}) {
+            String cache = cacheSize == 0 ? "no cache" : "cache " + cacheSize;
+            ASTUpdater.setParseCacheSize(cacheSize);
+            report("Sequential, " + cache, changes.size(), runSequential(changes));
+            if (cacheSize > 0) {
+                report("Sequential, " + cache + ", warm", changes.size(), runSequential(changes));
+            }
+
+            ASTUpdater.setParseCacheSize(cacheSize);
+            long start = System.nanoTime();
+            ASTUpdater.applyLLMChanges(changes);
+            report("Batch, " + cache, changes.size(), System.nanoTime() - start);
+        }
+        System.out.println("Processors : " + Runtime.getRuntime().availableProcessors());
+    }
+
+    private static long runSequential(List<ASTUpdater.ChangePair> changes) {
+        long start = System.nanoTime();
+        for (ASTUpdater.ChangePair change : changes) {
+            ASTUpdater.applyLLMChanges(change.getBaseCode(), change.getLlmCode());
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static void report(String scenario, int snippets, long nanos) {
+        double seconds = (double) nanos / 1_000_000_000;
+        System.out.println(String.format("%-32s : %.2f s, %.0f snippets/sec", scenario, seconds, snippets / seconds));
+    }
+
+    private static List<ASTUpdater.ChangePair> generateChanges(int snippetCount, int distinctBases) {
+        List<ASTUpdater.ChangePair> changes = new ArrayList<>(snippetCount);
+        for (int i = 0; i < snippetCount; i++) {
+            int baseId = i % distinctBases;
+            changes.add(new ASTUpdater.ChangePair(baseCode(baseId), llmCode(baseId, i / distinctBases % 4)));
+        }
+        return changes;
+    }
+
+    private static String baseCode(int id) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("import java.util.List;\n");
+        sb.append("public class Service").append(id).append(" {\n");
+        sb.append("    private int total;\n");
+        sb.append("    private List<String> names;\n");
+        for (int m = 0; m < 20; m++) {
+            sb.append("    public int compute").append(m).append("(int a, java.util.Map<String, List<Integer>> b) {\n");
+            sb.append("        int result = a + ").append(m).append(";\n");
+            sb.append("        return result;\n");
+            sb.append("    }\n");
+        }
+        sb.append("}\n");
+        return sb.toString();
+    }
+
+    private static String llmCode(int id, int variant) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("import java.util.List;\n");
+        sb.append("import java.util.Map;\n");
+        sb.append("public final class Service").append(id).append(" {\n");
+        sb.append("    private int total;\n");
+        sb.append("    private Map<String, Integer> cache").append(variant).append(";\n");
+        for (int m = 0; m < 20; m++) {
+            sb.append("    public int compute").append(m).append("(int a, java.util.Map<String, List<Integer>> b) {\n");
+            sb.append("        int result = a * ").append(m + variant).append(";\n");
+            sb.append("        return result;\n");
+            sb.append("    }\n");
+        }
+        sb.append("    public void reset").append(variant).append("() {\n");
+        sb.append("        total = 0;\n");
+        sb.append("    }\n");
+        sb.append("}\n");
+        return sb.toString();
+    }
+}
@@ -10,9 +10,12 @@ import spoon.reflect.factory.Factory;
 import spoon.reflect.factory.TypeFactory;
 import spoon.reflect.reference.CtTypeReference;
 
+import java.io.File;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Map;
+import java.util.Set;
 
 public class ChangeAutomation {
 
@@ -28,14 +31,13 @@ public class ChangeAutomation {
         String methodName = methodConfig.get("name").getAsString();
         String methodBody = methodConfig.get("body").getAsString();
 
-        // Configure Spoon
-        Launcher launcher = new Launcher();
-        launcher.addInputResource("src/main/java/spoon/NumberformatException.java");
-        launcher.getEnvironment().setAutoImports(true);
-        launcher.getEnvironment().setCommentEnabled(true);
-
-        // Build the model
-        launcher.buildModel();
+        // Configure Spoon and build the model, reusing the cached model for unchanged sources
+        ModelCache modelCache = new ModelCache(Path.of("target/spoon-cache/change-automation"));
+        Launcher launcher = modelCache.buildModel(Set.of(new File("src/main/java/spoon/NumberFormatException.java")),
+                environment -> {
+                    environment.setAutoImports(true);
+                    environment.setCommentEnabled(true);
+                });
         Factory factory = launcher.getFactory();
 
         // Get the target class
@@ -92,6 +94,17 @@ public class ChangeAutomation {
             existingMethod.setBody(factory.createCodeSnippetStatement(modifiedBody));
         }
 
+        // Check that the modified class still compiles before writing it out
+        CompileVerifier.Result verification;
+        try (CompileVerifier verifier = CompileVerifier.forCurrentClasspath()) {
+            verification = verifier.verify(targetClass, Map.of(targetClass, ctClass.toStringWithImports()));
+        }
+        System.out.println(verification);
+        if (!verification.isSuccess()) {
+            System.err.println("Modified code does not compile, nothing written");
+            System.exit(1);
+        }
+
         // Output the modified code
         launcher.setSourceOutputDirectory("target/generated-sources/");
         launcher.prettyprint();
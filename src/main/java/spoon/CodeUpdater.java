@@ -1,51 +1,211 @@
 package spoon;
 
 import com.google.gson.*;
+import com.google.gson.stream.JsonReader;
 import spoon.Launcher;
 import spoon.reflect.declaration.*;
 import spoon.reflect.factory.Factory;
 import spoon.reflect.reference.CtTypeReference;
+import java.io.File;
 import java.io.FileReader;
+import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 public class CodeUpdater {
     private static final Gson gson = new GsonBuilder().setPrettyPrinting().create();
+    private static final String SUGGESTIONS_FILE = "src/main/java/spoon/gpt-suggestions.json";
+    private static final int STREAM_QUEUE_CAPACITY = 64;
+    // Marks the end of the classes array for the streaming worker
+    private static final JsonObject END_OF_CLASSES = new JsonObject();
 
     public static void main(String[] args) throws Exception {
-        // 1. Load GPT-generated JSON configuration
-        JsonObject config = loadJsonConfig("src/main/java/spoon/gpt-suggestions.json");
+        // Stream the suggestions instead of loading the whole document when run with --stream
+        boolean streaming = args.length > 0 && "--stream".equals(args[0]);
 
-        // 2. Initialize Spoon
-        Launcher launcher = new Launcher();
-        launcher.addInputResource("spoon.NumberFormatException");
-        launcher.getEnvironment().setAutoImports(true);
-        launcher.getEnvironment().setCommentEnabled(true);
-        launcher.buildModel();
+        // 1. Initialize Spoon, reusing the cached model for unchanged sources
+        ModelCache modelCache = new ModelCache(Path.of("target/spoon-cache/code-updater"));
+        Launcher launcher = modelCache.buildModel(Set.of(new File("src/main/java/spoon/NumberFormatException.java")),
+                environment -> {
+                    environment.setAutoImports(true);
+                    environment.setCommentEnabled(true);
+                });
 
-        // 3. Process each class modification
-        JsonArray classes = config.getAsJsonArray("classes");
-        for (JsonElement classElement : classes) {
-            processClassModification(launcher.getFactory(), classElement.getAsJsonObject());
+        // 2. Load GPT-generated JSON configuration and process each class modification
+        Path suggestions = Path.of(SUGGESTIONS_FILE);
+        Set<String> changedClasses = new LinkedHashSet<>();
+        Consumer<JsonObject> onClassProcessed = classConfig -> changedClasses.add(classConfig.get("name").getAsString());
+        if (streaming) {
+            streamConfig(launcher.getFactory(), suggestions, STREAM_QUEUE_CAPACITY, onClassProcessed);
+        } else {
+            applyConfig(launcher.getFactory(), loadJsonConfig(suggestions.toString()), onClassProcessed);
         }
 
-        // 4. Apply global changes
-        if (config.has("global_changes")) {
-            processGlobalChanges(launcher.getFactory(), config.getAsJsonArray("global_changes"));
+        // 3. Verify that every changed class still compiles, and write nothing if one does not
+        if (!verifyChangedClasses(launcher.getFactory(), changedClasses)) {
+            System.err.println("Updated code does not compile, nothing written");
+            System.exit(1);
         }
 
-        // 5. Output modified code
+        // 4. Output modified code
         launcher.setSourceOutputDirectory("target/spooned/");
         launcher.prettyprint();
         System.out.println("Code updates completed successfully!");
     }
 
-    private static JsonObject loadJsonConfig(String filePath) throws Exception {
+    /**
+     * Compiles the changed classes together, so a suggestion may use what another one added, prints the
+     * result for each class and returns true only if all of them compile.
+     */
+    private static boolean verifyChangedClasses(Factory factory, Set<String> changedClasses) throws IOException {
+        Map<String, String> sources = new LinkedHashMap<>();
+        for (String className : changedClasses) {
+            CtType<?> ctClass = factory.Type().get(className);
+            if (ctClass != null) {
+                sources.put(className, ctClass.toStringWithImports());
+            }
+        }
+        if (sources.isEmpty()) {
+            return true;
+        }
+        boolean success = true;
+        try (CompileVerifier verifier = CompileVerifier.forCurrentClasspath()) {
+            for (CompileVerifier.Result result : verifier.verifyEach(sources).values()) {
+                System.out.println(result);
+                success &= result.isSuccess();
+            }
+        }
+        return success;
+    }
+
+    static JsonObject loadJsonConfig(String filePath) throws Exception {
         String content = Files.readString(Path.of(filePath));
         return JsonParser.parseString(content).getAsJsonObject();
     }
 
+    static void applyConfig(Factory factory, JsonObject config, Consumer<JsonObject> onClassProcessed) {
+        // Process each class modification
+        JsonArray classes = config.getAsJsonArray("classes");
+        for (JsonElement classElement : classes) {
+            processClassModification(factory, classElement.getAsJsonObject());
+            onClassProcessed.accept(classElement.getAsJsonObject());
+        }
+
+        // Apply global changes
+        if (config.has("global_changes")) {
+            processGlobalChanges(factory, config.getAsJsonArray("global_changes"));
+        }
+    }
+
+    /**
+     * Reads the suggestions with a {@link JsonReader} and hands each {@code classes} entry to a worker as
+     * soon as it has been parsed, so only {@code queueCapacity} entries are held in memory at a time.
+     * Global changes are applied after every class, as in {@link #applyConfig}.
+     */
+    static void streamConfig(Factory factory, Path filePath, int queueCapacity,
+                             Consumer<JsonObject> onClassProcessed) throws IOException {
+        BlockingQueue<JsonObject> queue = new ArrayBlockingQueue<>(queueCapacity);
+        // The worker blocks on the queue, so it gets its own thread rather than one from the common pool
+        ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "code-updater-classes");
+            thread.setDaemon(true);
+            return thread;
+        });
+        CompletableFuture<Void> worker = CompletableFuture.runAsync(() -> drainClasses(factory, queue, onClassProcessed), executor);
+
+        JsonArray globalChanges = null;
+        try {
+            try (JsonReader reader = new JsonReader(Files.newBufferedReader(filePath))) {
+                // Same leniency as JsonParser.parseString used by loadJsonConfig
+                reader.setLenient(true);
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    String name = reader.nextName();
+                    if ("classes".equals(name)) {
+                        reader.beginArray();
+                        while (reader.hasNext()) {
+                            enqueue(queue, JsonParser.parseReader(reader).getAsJsonObject(), worker);
+                        }
+                        reader.endArray();
+                    } else if ("global_changes".equals(name)) {
+                        globalChanges = JsonParser.parseReader(reader).getAsJsonArray();
+                    } else {
+                        reader.skipValue();
+                    }
+                }
+                reader.endObject();
+            } finally {
+                if (!worker.isDone()) {
+                    enqueue(queue, END_OF_CLASSES, worker);
+                }
+            }
+            awaitWorker(worker);
+        } finally {
+            executor.shutdown();
+        }
+
+        if (globalChanges != null) {
+            processGlobalChanges(factory, globalChanges);
+        }
+    }
+
+    private static void enqueue(BlockingQueue<JsonObject> queue, JsonObject classConfig, CompletableFuture<Void> worker) {
+        try {
+            while (!queue.offer(classConfig, 100, TimeUnit.MILLISECONDS)) {
+                if (worker.isDone()) {
+                    // Rethrows the failure that stopped the worker
+                    awaitWorker(worker);
+                    throw new IllegalStateException("Class worker stopped before the end of the suggestions");
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while queueing class suggestions", e);
+        }
+    }
+
+    /** Waits for the worker and rethrows what made it fail rather than the wrapping CompletionException. */
+    private static void awaitWorker(CompletableFuture<Void> worker) {
+        try {
+            worker.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+
+    private static void drainClasses(Factory factory, BlockingQueue<JsonObject> queue,
+                                     Consumer<JsonObject> onClassProcessed) {
+        try {
+            for (JsonObject classConfig = queue.take(); classConfig != END_OF_CLASSES; classConfig = queue.take()) {
+                processClassModification(factory, classConfig);
+                onClassProcessed.accept(classConfig);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
     private static void processClassModification(Factory factory, JsonObject classConfig) {
         String className = classConfig.get("name").getAsString();
         CtType<?> ctClass = factory.Type().get(className);
@@ -105,12 +265,17 @@ public class CodeUpdater {
                 newMethod.setType(factory.Type().createReference(returnType));
 
                 // Set body
-                newMethod.setBody(factory.createCodeSnippetStatement(methodConfig.get("body").getAsString()));
+                // The printer ends a snippet statement with its own semicolon, so drop the one from the suggestion
+                String body = methodConfig.get("body").getAsString().trim();
+                if (body.endsWith(";")) {
+                    body = body.substring(0, body.length() - 1);
+                }
+                newMethod.setBody(factory.createCodeSnippetStatement(body));
 
                 // Add modifiers
                 if (methodConfig.has("modifiers")) {
                     JsonArray modifiers = methodConfig.getAsJsonArray("modifiers");
-                    modifiers.forEach(m -> newMethod.addModifier(ModifierKind.valueOf(m.getAsString())));
+                    modifiers.forEach(m -> newMethod.addModifier(ModifierKind.valueOf(m.getAsString().toUpperCase(Locale.ROOT))));
                 }
 
                 ctClass.addMethod(newMethod);
@@ -163,7 +328,7 @@ public class CodeUpdater {
 
             if (fieldConfig.has("modifiers")) {
                 JsonArray modifiers = fieldConfig.getAsJsonArray("modifiers");
-                modifiers.forEach(m -> newField.addModifier(ModifierKind.valueOf(m.getAsString())));
+                modifiers.forEach(m -> newField.addModifier(ModifierKind.valueOf(m.getAsString().toUpperCase(Locale.ROOT))));
             }
 
             ctClass.addField(newField);
@@ -0,0 +1,95 @@
+package spoon;
+
+import com.google.gson.JsonObject;
+import spoon.reflect.factory.Factory;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.Consumer;
+
+/**
+ * Compares peak heap and time to first change of the DOM and streaming suggestion loaders in
+ * {@link CodeUpdater} on a generated suggestions file.
+ * Usage: {@code CodeUpdaterStreamingBenchmark [classEntries] [dom|stream|both]}. Run each mode in its own
+ * JVM for the most reliable peak heap figures.
+ */
+public class CodeUpdaterStreamingBenchmark {
+    private static final int TARGET_CLASSES = 100;
+
+    public static void main(String[] args) throws Exception {
+        int classEntries = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        String mode = args.length > 1 ? args[1] : "both";
+
+        Path suggestions = Files.createTempFile("gpt-suggestions", ".json");
+        generateSuggestions(suggestions, classEntries);
+        System.out.println(String.format("Suggestions file : %d entries, %.1f MB",
+                classEntries, Files.size(suggestions) / (1024.0 * 1024.0)));
+
+        if (!"stream".equals(mode)) {
+            run("DOM", suggestions, (factory, listener) ->
+                    CodeUpdater.applyConfig(factory, CodeUpdater.loadJsonConfig(suggestions.toString()), listener));
+        }
+        if (!"dom".equals(mode)) {
+            run("Streaming", suggestions, (factory, listener) ->
+                    CodeUpdater.streamConfig(factory, suggestions, 64, listener));
+        }
+        Files.delete(suggestions);
+    }
+
+    private static void run(String name, Path suggestions, Loader loader) throws Exception {
+        Factory factory = new Launcher().getFactory();
+        for (int i = 0; i < TARGET_CLASSES; i++) {
+            factory.Class().create("bench.Target" + i);
+        }
+
+        System.gc();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            pool.resetPeakUsage();
+        }
+        long start = System.nanoTime();
+        long[] firstChange = {0};
+        loader.load(factory, classConfig -> {
+            if (firstChange[0] == 0) {
+                firstChange[0] = System.nanoTime();
+            }
+        });
+        long end = System.nanoTime();
+
+        long peakHeap = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peakHeap += pool.getPeakUsage().getUsed();
+            }
+        }
+        System.out.println(String.format("%-10s : first change %.3f s, total %.2f s, peak heap %.1f MB", name,
+                (firstChange[0] - start) / 1e9, (end - start) / 1e9, peakHeap / (1024.0 * 1024.0)));
+    }
+
+    private static void generateSuggestions(Path file, int classEntries) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(file)) {
+            writer.write("{\n  \"metadata\": {\"description\": \"generated\", \"version\": \"1.0\"},\n  \"classes\": [\n");
+            for (int i = 0; i < classEntries; i++) {
+                writer.write("    {\"name\": \"bench.Target" + (i % TARGET_CLASSES) + "\", \"methods\": [");
+                for (int m = 0; m < 4; m++) {
+                    writer.write((m == 0 ? "" : ", ") + "{\"action\": \"add\", \"name\": \"validate" + m + "\", "
+                            + "\"params\": [{\"type\": \"String\", \"name\": \"input\"}], \"return_type\": \"boolean\", "
+                            + "\"body\": \"return input != null && input.length() > " + i + " && input.matches(\\\"\\\\\\\\d+\\\");\", "
+                            + "\"modifiers\": [\"public\"]}");
+                }
+                writer.write("], \"fields\": [{\"action\": \"add\", \"type\": \"String\", \"name\": \"pattern\", "
+                        + "\"value\": \"\\\"\\\\\\\\d+\\\"\", \"modifiers\": [\"private\", \"static\", \"final\"]}]}");
+                writer.write(i == classEntries - 1 ? "\n" : ",\n");
+            }
+            writer.write("  ],\n  \"global_changes\": [{\"type\": \"import\", \"class\": \"java.util.regex.Pattern\"}]\n}\n");
+        }
+    }
+
+    private interface Loader {
+        void load(Factory factory, Consumer<JsonObject> onClassProcessed) throws Exception;
+    }
+}
@@ -0,0 +1,205 @@
+package spoon;
+
+import javax.tools.*;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Compiles changed compilation units in memory to check that rewritten code still builds.
+ *
+ * Only the given sources are compiled. Everything they reference is resolved from already compiled
+ * class files on the classpath, typically {@code target/classes} and the dependency jars, and is never
+ * recompiled. The file manager, and with it the opened jars and directory indexes, is created once and
+ * reused by every {@link #verify} call. Generated class files are kept in memory and discarded.
+ */
+public class CompileVerifier implements AutoCloseable {
+    private static final List<String> OPTIONS = Arrays.asList("-proc:none", "-implicit:none", "-Xlint:none");
+
+    private final JavaCompiler compiler;
+    private final MemoryFileManager fileManager;
+
+    public CompileVerifier(List<File> classpath) {
+        this.compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            throw new IllegalStateException("No system Java compiler available, run on a JDK");
+        }
+        StandardJavaFileManager standardFileManager = compiler.getStandardFileManager(null, Locale.ROOT, StandardCharsets.UTF_8);
+        try {
+            standardFileManager.setLocation(StandardLocation.CLASS_PATH, classpath);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Invalid verification classpath", e);
+        }
+        this.fileManager = new MemoryFileManager(standardFileManager);
+    }
+
+    /** A verifier over the classpath of the running JVM, which includes {@code target/classes}. */
+    public static CompileVerifier forCurrentClasspath() {
+        List<File> classpath = Arrays.stream(System.getProperty("java.class.path").split(File.pathSeparator))
+                .filter(entry -> !entry.isEmpty())
+                .map(File::new)
+                .collect(Collectors.toList());
+        return new CompileVerifier(classpath);
+    }
+
+    /**
+     * Compiles the given sources, keyed by fully qualified class name, and returns the diagnostics
+     * reported for them under the given suggestion name.
+     */
+    public synchronized Result verify(String suggestion, Map<String, String> sourcesByClassName) {
+        long start = System.nanoTime();
+        DiagnosticCollector<JavaFileObject> collector = new DiagnosticCollector<>();
+        boolean success = compile(sourcesByClassName, collector);
+
+        List<String> diagnostics = new ArrayList<>();
+        for (Diagnostic<? extends JavaFileObject> diagnostic : collector.getDiagnostics()) {
+            diagnostics.add(format(diagnostic));
+        }
+        return new Result(suggestion, success, diagnostics, System.nanoTime() - start);
+    }
+
+    /**
+     * Compiles the given sources together, so each one sees the others' new code rather than the compiled
+     * copies on the classpath, and returns one result per class name. Each result holds the diagnostics
+     * reported against that source and fails only on its own errors; diagnostics without a source apply to
+     * every class. All results carry the duration of the single compilation.
+     */
+    public synchronized Map<String, Result> verifyEach(Map<String, String> sourcesByClassName) {
+        long start = System.nanoTime();
+        DiagnosticCollector<JavaFileObject> collector = new DiagnosticCollector<>();
+        boolean success = compile(sourcesByClassName, collector);
+        long durationNanos = System.nanoTime() - start;
+
+        Map<String, List<Diagnostic<? extends JavaFileObject>>> diagnosticsByClassName = new LinkedHashMap<>();
+        for (String className : sourcesByClassName.keySet()) {
+            diagnosticsByClassName.put(className, new ArrayList<>());
+        }
+        for (Diagnostic<? extends JavaFileObject> diagnostic : collector.getDiagnostics()) {
+            if (diagnostic.getSource() instanceof SourceFile) {
+                diagnosticsByClassName.get(((SourceFile) diagnostic.getSource()).className).add(diagnostic);
+            } else {
+                diagnosticsByClassName.values().forEach(diagnostics -> diagnostics.add(diagnostic));
+            }
+        }
+
+        // A compilation that failed without reporting any error fails every class
+        boolean anyErrors = collector.getDiagnostics().stream().anyMatch(CompileVerifier::isError);
+        Map<String, Result> results = new LinkedHashMap<>();
+        for (Map.Entry<String, List<Diagnostic<? extends JavaFileObject>>> entry : diagnosticsByClassName.entrySet()) {
+            boolean classSuccess = (success || anyErrors) && entry.getValue().stream().noneMatch(CompileVerifier::isError);
+            List<String> diagnostics = entry.getValue().stream().map(CompileVerifier::format).collect(Collectors.toList());
+            results.put(entry.getKey(), new Result(entry.getKey(), classSuccess, diagnostics, durationNanos));
+        }
+        return results;
+    }
+
+    private boolean compile(Map<String, String> sourcesByClassName, DiagnosticCollector<JavaFileObject> collector) {
+        List<JavaFileObject> units = new ArrayList<>(sourcesByClassName.size());
+        for (Map.Entry<String, String> source : sourcesByClassName.entrySet()) {
+            units.add(new SourceFile(source.getKey(), source.getValue()));
+        }
+        fileManager.classFiles.clear();
+        return compiler.getTask(null, fileManager, collector, OPTIONS, null, units).call();
+    }
+
+    private static boolean isError(Diagnostic<? extends JavaFileObject> diagnostic) {
+        return diagnostic.getKind() == Diagnostic.Kind.ERROR;
+    }
+
+    private static String format(Diagnostic<? extends JavaFileObject> diagnostic) {
+        String source = diagnostic.getSource() == null ? "" : diagnostic.getSource().getName() + ":";
+        return diagnostic.getKind() + " " + source + diagnostic.getLineNumber() + ": " + diagnostic.getMessage(Locale.ROOT);
+    }
+
+    @Override
+    public void close() throws IOException {
+        fileManager.close();
+    }
+
+    public static class Result {
+        private final String suggestion;
+        private final boolean success;
+        private final List<String> diagnostics;
+        private final long durationNanos;
+
+        Result(String suggestion, boolean success, List<String> diagnostics, long durationNanos) {
+            this.suggestion = suggestion;
+            this.success = success;
+            this.diagnostics = diagnostics;
+            this.durationNanos = durationNanos;
+        }
+
+        public String getSuggestion() {
+            return suggestion;
+        }
+
+        public boolean isSuccess() {
+            return success;
+        }
+
+        public List<String> getDiagnostics() {
+            return diagnostics;
+        }
+
+        public long getDurationNanos() {
+            return durationNanos;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder(String.format("%s: %s in %.1f ms", suggestion,
+                    success ? "compiles" : "does not compile", durationNanos / 1e6));
+            for (String diagnostic : diagnostics) {
+                sb.append("\n  ").append(diagnostic);
+            }
+            return sb.toString();
+        }
+    }
+
+    private static final class SourceFile extends SimpleJavaFileObject {
+        private final String className;
+        private final String source;
+
+        SourceFile(String className, String source) {
+            super(URI.create("string:///" + className.replace('.', '/') + Kind.SOURCE.extension), Kind.SOURCE);
+            this.className = className;
+            this.source = source;
+        }
+
+        @Override
+        public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+            return source;
+        }
+    }
+
+    private static final class MemoryFileManager extends ForwardingJavaFileManager<StandardJavaFileManager> {
+        final Map<String, ByteArrayOutputStream> classFiles = new HashMap<>();
+
+        MemoryFileManager(StandardJavaFileManager fileManager) {
+            super(fileManager);
+        }
+
+        @Override
+        public JavaFileObject getJavaFileForOutput(Location location, String className, JavaFileObject.Kind kind,
+                                                   FileObject sibling) {
+            return new SimpleJavaFileObject(URI.create("mem:///" + className.replace('.', '/') + kind.extension), kind) {
+                @Override
+                public OutputStream openOutputStream() {
+                    return classFiles.computeIfAbsent(className, name -> new ByteArrayOutputStream());
+                }
+            };
+        }
+    }
+}
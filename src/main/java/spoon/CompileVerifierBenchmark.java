@@ -0,0 +1,75 @@
+package spoon;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Measures per-file verification latency of {@link CompileVerifier} on this project's sources, against an
+ * in-memory compile of every file and, with {@code --mvn}, a full {@code mvn compile}.
+ * Run with {@code target/classes} and the dependency jars on the classpath.
+ * Usage: {@code CompileVerifierBenchmark [sourceDir] [--mvn]}.
+ */
+public class CompileVerifierBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        Path sourceDir = Path.of(args.length > 0 && !args[0].startsWith("--") ? args[0] : "src/main/java");
+        boolean runMaven = Arrays.asList(args).contains("--mvn");
+
+        Map<String, String> sources = new HashMap<>();
+        try (Stream<Path> paths = Files.walk(sourceDir)) {
+            for (Path path : paths.filter(p -> p.toString().endsWith(".java")).collect(Collectors.toList())) {
+                String relative = sourceDir.relativize(path).toString();
+                String className = relative.substring(0, relative.length() - ".java".length())
+                        .replace(File.separatorChar, '.');
+                sources.put(className, Files.readString(path));
+            }
+        }
+
+        try (CompileVerifier verifier = CompileVerifier.forCurrentClasspath()) {
+            String first = sources.keySet().iterator().next();
+            CompileVerifier.Result cold = verifier.verify(first, Map.of(first, sources.get(first)));
+            System.out.println(String.format("Cold verification      : %.1f ms (%s)", cold.getDurationNanos() / 1e6, first));
+
+            // Warm-up pass, then the measured pass
+            for (int pass = 0; pass < 2; pass++) {
+                long[] latencies = new long[sources.size()];
+                int i = 0;
+                int failures = 0;
+                for (Map.Entry<String, String> source : sources.entrySet()) {
+                    CompileVerifier.Result result = verifier.verify(source.getKey(),
+                            Map.of(source.getKey(), source.getValue()));
+                    latencies[i++] = result.getDurationNanos();
+                    failures += result.isSuccess() ? 0 : 1;
+                }
+                if (pass == 1) {
+                    Arrays.sort(latencies);
+                    System.out.println(String.format("Warm verification/file : p50 %.1f ms, p99 %.1f ms, max %.1f ms over %d files, %d failed",
+                            latencies[latencies.length / 2] / 1e6, latencies[(int) (latencies.length * 0.99)] / 1e6,
+                            latencies[latencies.length - 1] / 1e6, latencies.length, failures));
+                }
+            }
+
+            CompileVerifier.Result all = verifier.verify("all", sources);
+            System.out.println(String.format("In-memory compile, all : %.1f ms for %d files", all.getDurationNanos() / 1e6, sources.size()));
+        }
+
+        if (runMaven) {
+            // Touching a source makes the compiler plugin recompile the whole module
+            List<Path> files;
+            try (Stream<Path> paths = Files.walk(sourceDir)) {
+                files = paths.filter(p -> p.toString().endsWith(".java")).collect(Collectors.toList());
+            }
+            files.get(0).toFile().setLastModified(System.currentTimeMillis());
+            long start = System.nanoTime();
+            int exit = new ProcessBuilder("mvn", "-B", "-q", "-o", "compile").inheritIO().start().waitFor();
+            System.out.println(String.format("mvn compile            : %.1f ms (exit %d)", (System.nanoTime() - start) / 1e6, exit));
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package spoon;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import spoon.compiler.Environment;
+import spoon.reflect.cu.CompilationUnit;
+import spoon.reflect.cu.SourcePosition;
+import spoon.reflect.declaration.CtType;
+import spoon.reflect.factory.Factory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * On-disk Spoon model cache keyed by source content hash.
+ *
+ * Model loading and dependent invalidation are delegated to Spoon's {@link IncrementalLauncher}, which
+ * decides what to rebuild from file timestamps. Those timestamps are never taken from the input tree:
+ * the launcher reads staged copies kept in the cache directory, and only the SHA-256 fingerprints
+ * recorded by the previous build decide which copies are refreshed. A copy whose content changed is
+ * rewritten and stamped after the last build, so it is reparsed together with the types that reference
+ * it; every other copy keeps a timestamp before the last build and is reloaded from the cache.
+ */
+public class ModelCache {
+    private static final Gson gson = new GsonBuilder().setPrettyPrinting().create();
+    private static final String MANIFEST_FILE = "fingerprints.json";
+    private static final String STAGING_DIRECTORY = "sources";
+
+    private final Path cacheDirectory;
+    private final Set<String> sourceClasspath;
+
+    private int changedFiles;
+    private int totalFiles;
+
+    public ModelCache(Path cacheDirectory) {
+        this(cacheDirectory, new HashSet<>());
+    }
+
+    public ModelCache(Path cacheDirectory, Set<String> sourceClasspath) {
+        this.cacheDirectory = cacheDirectory;
+        this.sourceClasspath = sourceClasspath;
+    }
+
+    /**
+     * Builds the model for the given files or directories, reusing the cached model for every compilation
+     * unit whose content did not change. The environment is configured before the build, and the cache is
+     * saved before the launcher is returned so later modifications of the model are never persisted.
+     */
+    public Launcher buildModel(Set<File> inputResources, Consumer<Environment> environmentSetup) {
+        Set<File> sources = listJavaFiles(inputResources);
+        Manifest previous = loadManifest();
+        Manifest current = new Manifest();
+        current.buildStartedAt = System.currentTimeMillis();
+        Path stagingDirectory = cacheDirectory.resolve(STAGING_DIRECTORY);
+        if (previous == null) {
+            deleteRecursively(stagingDirectory);
+        }
+
+        changedFiles = 0;
+        totalFiles = sources.size();
+        Set<File> stagedSources = new HashSet<>();
+        for (File source : sources) {
+            String key = source.getPath();
+            String hash = fingerprint(source);
+            current.fingerprints.put(key, hash);
+            Path staged = stagedPath(stagingDirectory, source);
+            stagedSources.add(staged.toFile());
+            if (previous != null && hash.equals(previous.fingerprints.get(key)) && Files.exists(staged)) {
+                if (lastModified(staged) >= previous.buildStartedAt) {
+                    setLastModified(staged, previous.buildStartedAt - 1);
+                }
+            } else {
+                changedFiles++;
+                stage(source, staged, previous == null ? current.buildStartedAt : previous.buildStartedAt);
+            }
+        }
+        if (previous != null) {
+            // A missing copy is how the launcher learns that a source was removed
+            for (String key : previous.fingerprints.keySet()) {
+                if (!current.fingerprints.containsKey(key)) {
+                    delete(stagedPath(stagingDirectory, new File(key)));
+                }
+            }
+        }
+
+        IncrementalLauncher launcher = new IncrementalLauncher(stagedSources, new HashSet<>(sourceClasspath),
+                cacheDirectory.toFile(), previous == null);
+        environmentSetup.accept(launcher.getEnvironment());
+        launcher.buildModel();
+        if (launcher.changesPresent()) {
+            launcher.saveCache();
+        } else if (previous != null) {
+            // The cached model was not rewritten, so its build time still applies
+            current.buildStartedAt = previous.buildStartedAt;
+        }
+        saveManifest(current);
+        registerCompilationUnits(launcher.getFactory());
+        return launcher;
+    }
+
+    /**
+     * A model loaded from the cache leaves the factory's compilation unit map empty, and the units
+     * referenced from the types' positions no longer resolve their declared types, so
+     * {@link Launcher#prettyprint()} would print nothing or stale shadow types. Each top-level type
+     * without a registered unit is detached from its cached position and given a new unit.
+     */
+    private static void registerCompilationUnits(Factory factory) {
+        Map<String, CompilationUnit> units = factory.CompilationUnit().getMap();
+        for (CtType<?> type : factory.Type().getAll()) {
+            CompilationUnit cached = type.getPosition().getCompilationUnit();
+            if (cached == null || cached.getFile() == null || units.containsKey(cached.getFile().getPath())) {
+                continue;
+            }
+            type.setPosition(SourcePosition.NOPOSITION);
+            factory.CompilationUnit().getOrCreate(type);
+        }
+    }
+
+    /** Number of source files whose content changed since the previous {@link #buildModel} call. */
+    public int getChangedFiles() {
+        return changedFiles;
+    }
+
+    public int getTotalFiles() {
+        return totalFiles;
+    }
+
+    private static Set<File> listJavaFiles(Set<File> inputResources) {
+        Set<File> files = new HashSet<>();
+        for (File input : inputResources) {
+            try (Stream<Path> paths = Files.walk(input.toPath())) {
+                files.addAll(paths.filter(p -> p.toString().endsWith(".java"))
+                        .map(p -> canonical(p.toFile()))
+                        .collect(Collectors.toSet()));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to list sources under " + input, e);
+            }
+        }
+        return files;
+    }
+
+    private static File canonical(File file) {
+        try {
+            return file.getCanonicalFile();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** Mirrors the absolute path of the source under the staging directory. */
+    private static Path stagedPath(Path stagingDirectory, File source) {
+        Path absolute = source.toPath().toAbsolutePath();
+        return stagingDirectory.resolve(absolute.getRoot().relativize(absolute).toString());
+    }
+
+    /**
+     * Copies the source and stamps the copy after {@code lastBuild}. The stamp is read back, so a file
+     * system that cannot represent it fails the build instead of silently serving a stale model.
+     */
+    private static void stage(File source, Path staged, long lastBuild) {
+        try {
+            Files.createDirectories(staged.getParent());
+            Files.copy(source.toPath(), staged, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to stage " + source, e);
+        }
+        // Two seconds clear the coarsest common timestamp resolution
+        long stamp = Math.max(System.currentTimeMillis(), lastBuild + 2_000);
+        setLastModified(staged, stamp);
+        if (lastModified(staged) <= lastBuild) {
+            throw new IllegalStateException("Cannot mark " + staged + " as changed, its timestamp reads back as "
+                    + lastModified(staged));
+        }
+    }
+
+    private static long lastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path).toMillis();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void setLastModified(Path path, long millis) {
+        try {
+            Files.setLastModifiedTime(path, FileTime.fromMillis(millis));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to set the timestamp of " + path, e);
+        }
+    }
+
+    private static void delete(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void deleteRecursively(Path directory) {
+        if (!Files.exists(directory)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(ModelCache::delete);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String fingerprint(File file) {
+        try {
+            return ContentHash.of(Files.readAllBytes(file.toPath()));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read " + file, e);
+        }
+    }
+
+    private Manifest loadManifest() {
+        Path manifestFile = cacheDirectory.resolve(MANIFEST_FILE);
+        if (!Files.exists(manifestFile)) {
+            return null;
+        }
+        try {
+            return gson.fromJson(Files.readString(manifestFile), Manifest.class);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private void saveManifest(Manifest manifest) {
+        try {
+            Files.createDirectories(cacheDirectory);
+            Files.writeString(cacheDirectory.resolve(MANIFEST_FILE), gson.toJson(manifest));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write model cache manifest", e);
+        }
+    }
+
+    private static class Manifest {
+        long buildStartedAt;
+        Map<String, String> fingerprints = new HashMap<>();
+    }
+}
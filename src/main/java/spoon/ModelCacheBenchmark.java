@@ -0,0 +1,101 @@
+package spoon;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Compares a cold model build with warm rebuilds through {@link ModelCache} on a generated source tree.
+ * Usage: {@code ModelCacheBenchmark [fileCount]}, 5000 files by default.
+ */
+public class ModelCacheBenchmark {
+    private static final int DEFAULT_FILE_COUNT = 5_000;
+
+    public static void main(String[] args) throws Exception {
+        int fileCount = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_FILE_COUNT;
+        Path workDirectory = Files.createTempDirectory("model-cache-benchmark");
+        Path sourceDirectory = workDirectory.resolve("src");
+        Path cacheDirectory = workDirectory.resolve("cache");
+        generateSources(sourceDirectory, fileCount);
+
+        ModelCache cache = new ModelCache(cacheDirectory);
+        Set<File> inputs = Set.of(sourceDirectory.toFile());
+
+        report("Cold build", cache, inputs);
+        report("Warm build, no changes", cache, inputs);
+
+        // Same content with a fresh timestamp, as after a branch switch
+        try (Stream<Path> paths = Files.walk(sourceDirectory)) {
+            paths.filter(Files::isRegularFile).forEach(p -> p.toFile().setLastModified(System.currentTimeMillis()));
+        }
+        report("Warm build, all files touched", cache, inputs);
+
+        Path edited = sourceDirectory.resolve(packagePath(fileCount / 2)).resolve(className(fileCount / 2) + ".java");
+        Files.writeString(edited, Files.readString(edited).replace("return value;", "return value + 1;"));
+        report("Warm build, one file edited", cache, inputs);
+
+        deleteRecursively(workDirectory);
+    }
+
+    private static void report(String scenario, ModelCache cache, Set<File> inputs) {
+        long start = System.nanoTime();
+        Launcher launcher = cache.buildModel(inputs, environment -> {
+            environment.setAutoImports(true);
+            environment.setNoClasspath(true);
+        });
+        double duration = (double) (System.nanoTime() - start) / 1_000_000_000;
+        int types = launcher.getModel().getAllTypes().size();
+        System.out.println(String.format("%-32s : %.2f s, %d/%d files changed, %d types",
+                scenario, duration, cache.getChangedFiles(), cache.getTotalFiles(), types));
+    }
+
+    /** Generates classes in packages of 100, each one depending on its predecessor. */
+    static void generateSources(Path sourceDirectory, int fileCount) throws IOException {
+        for (int i = 0; i < fileCount; i++) {
+            Path packageDirectory = sourceDirectory.resolve(packagePath(i));
+            Files.createDirectories(packageDirectory);
+            String previous = i == 0 ? "Object" : packageName(i - 1) + "." + className(i - 1);
+            String source = "package " + packageName(i) + ";\n" +
+                    "\n" +
+                    "public class " + className(i) + " {\n" +
+                    "    private final " + previous + " previous;\n" +
+                    "    private int value = " + i + ";\n" +
+                    "\n" +
+                    "    public " + className(i) + "(" + previous + " previous) {\n" +
+                    "        this.previous = previous;\n" +
+                    "    }\n" +
+                    "\n" +
+                    "    public int compute(int input) {\n" +
+                    "        int value = input * this.value;\n" +
+                    "        for (int j = 0; j < 10; j++) {\n" +
+                    "            value += j;\n" +
+                    "        }\n" +
+                    "        return value;\n" +
+                    "    }\n" +
+                    "}\n";
+            Files.writeString(packageDirectory.resolve(className(i) + ".java"), source);
+        }
+    }
+
+    private static String packageName(int index) {
+        return "generated.p" + (index / 100);
+    }
+
+    private static String packagePath(int index) {
+        return packageName(index).replace('.', File.separatorChar);
+    }
+
+    private static String className(int index) {
+        return "Generated" + index;
+    }
+
+    static void deleteRecursively(Path directory) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package spoon;
+
+import org.eclipse.jdt.core.dom.*;
+import org.eclipse.jdt.core.dom.rewrite.*;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Records the minimal set of rewrites that turns a base subtree into an LLM subtree.
+ *
+ * Subtrees are compared by a structural hash, confirmed with {@link ASTMatcher}, so identical
+ * subtrees are never descended into. Child lists are aligned on the longest common subsequence of
+ * their subtree hashes; unmatched children of the same node type are diffed recursively, the rest
+ * are replaced, removed or inserted. New nodes are copied into the base AST, so the caller must own
+ * that AST while the diff runs.
+ */
+class StructuralDiff {
+    // Above this many base x LLM children the gap is paired by position instead of aligned
+    private static final long MAX_ALIGNMENT_CELLS = 4_000_000;
+
+    private final ASTRewrite rewriter;
+    private final AST ast;
+    private final Map<ASTNode, Long> hashes = new IdentityHashMap<>();
+    private final ASTMatcher matcher = new ASTMatcher();
+
+    private int edits;
+
+    StructuralDiff(ASTRewrite rewriter) {
+        this.rewriter = rewriter;
+        this.ast = rewriter.getAST();
+    }
+
+    /** Number of rewrite operations recorded so far. */
+    int getEdits() {
+        return edits;
+    }
+
+    void diff(ASTNode base, ASTNode llm) {
+        if (isIdentical(base, llm)) {
+            return;
+        }
+        if (base.getNodeType() != llm.getNodeType()) {
+            replace(base, llm);
+            return;
+        }
+        for (Object descriptor : base.structuralPropertiesForType()) {
+            StructuralPropertyDescriptor property = (StructuralPropertyDescriptor) descriptor;
+            if (property.isSimpleProperty()) {
+                diffSimpleProperty(base, llm, (SimplePropertyDescriptor) property);
+            } else if (property.isChildProperty()) {
+                diffChildProperty(base, llm, (ChildPropertyDescriptor) property);
+            } else {
+                diffChildList(base, llm, (ChildListPropertyDescriptor) property);
+            }
+        }
+    }
+
+    private void diffSimpleProperty(ASTNode base, ASTNode llm, SimplePropertyDescriptor property) {
+        Object llmValue = llm.getStructuralProperty(property);
+        if (!Objects.equals(base.getStructuralProperty(property), llmValue)) {
+            rewriter.set(base, property, llmValue, null);
+            edits++;
+        }
+    }
+
+    private void diffChildProperty(ASTNode base, ASTNode llm, ChildPropertyDescriptor property) {
+        ASTNode baseChild = (ASTNode) base.getStructuralProperty(property);
+        ASTNode llmChild = (ASTNode) llm.getStructuralProperty(property);
+        if (baseChild == null && llmChild == null) {
+            return;
+        }
+        if (baseChild != null && llmChild != null) {
+            diff(baseChild, llmChild);
+            return;
+        }
+        rewriter.set(base, property, llmChild == null ? null : ASTNode.copySubtree(ast, llmChild), null);
+        edits++;
+    }
+
+    private void diffChildList(ASTNode base, ASTNode llm, ChildListPropertyDescriptor property) {
+        List<?> baseChildren = (List<?>) base.getStructuralProperty(property);
+        List<?> llmChildren = (List<?>) llm.getStructuralProperty(property);
+
+        // Identical leading and trailing children need no edits and are left out of the alignment
+        int from = 0;
+        int baseTo = baseChildren.size();
+        int llmTo = llmChildren.size();
+        while (from < baseTo && from < llmTo
+                && isIdentical((ASTNode) baseChildren.get(from), (ASTNode) llmChildren.get(from))) {
+            from++;
+        }
+        while (baseTo > from && llmTo > from
+                && isIdentical((ASTNode) baseChildren.get(baseTo - 1), (ASTNode) llmChildren.get(llmTo - 1))) {
+            baseTo--;
+            llmTo--;
+        }
+        int n = baseTo - from;
+        int m = llmTo - from;
+        if (n == 0 && m == 0) {
+            return;
+        }
+        ListRewrite listRewrite = rewriter.getListRewrite(base, property);
+        ASTNode previous = from == 0 ? null : (ASTNode) baseChildren.get(from - 1);
+        if ((long) n * m > MAX_ALIGNMENT_CELLS) {
+            diffGap(listRewrite, baseChildren, from, baseTo, llmChildren, from, llmTo, previous);
+            return;
+        }
+
+        long[] baseHashes = new long[n];
+        long[] llmHashes = new long[m];
+        for (int i = 0; i < n; i++) {
+            baseHashes[i] = hash((ASTNode) baseChildren.get(from + i));
+        }
+        for (int j = 0; j < m; j++) {
+            llmHashes[j] = hash((ASTNode) llmChildren.get(from + j));
+        }
+
+        // Longest common subsequence of identical children, filled from the end
+        int[][] lcs = new int[n + 1][m + 1];
+        boolean[][] identical = new boolean[n][m];
+        for (int i = n - 1; i >= 0; i--) {
+            for (int j = m - 1; j >= 0; j--) {
+                identical[i][j] = baseHashes[i] == llmHashes[j]
+                        && isIdentical((ASTNode) baseChildren.get(from + i), (ASTNode) llmChildren.get(from + j));
+                lcs[i][j] = identical[i][j] ? lcs[i + 1][j + 1] + 1 : Math.max(lcs[i + 1][j], lcs[i][j + 1]);
+            }
+        }
+
+        int i = 0;
+        int j = 0;
+        while (i < n || j < m) {
+            // Collect the gap up to the next pair of identical children
+            int gapBase = i;
+            int gapLlm = j;
+            while (i < n && j < m && !identical[i][j]) {
+                if (lcs[i + 1][j] >= lcs[i][j + 1]) {
+                    i++;
+                } else {
+                    j++;
+                }
+            }
+            if (i == n || j == m) {
+                i = n;
+                j = m;
+            }
+            previous = diffGap(listRewrite, baseChildren, from + gapBase, from + i,
+                    llmChildren, from + gapLlm, from + j, previous);
+            if (i < n && j < m) {
+                previous = (ASTNode) baseChildren.get(from + i);
+                i++;
+                j++;
+            }
+        }
+    }
+
+    private ASTNode diffGap(ListRewrite listRewrite, List<?> baseChildren, int baseFrom, int baseTo,
+                            List<?> llmChildren, int llmFrom, int llmTo, ASTNode previous) {
+        int paired = Math.min(baseTo - baseFrom, llmTo - llmFrom);
+        for (int k = 0; k < paired; k++) {
+            ASTNode baseChild = (ASTNode) baseChildren.get(baseFrom + k);
+            ASTNode llmChild = (ASTNode) llmChildren.get(llmFrom + k);
+            if (baseChild.getNodeType() == llmChild.getNodeType()) {
+                diff(baseChild, llmChild);
+            } else {
+                listRewrite.replace(baseChild, ASTNode.copySubtree(ast, llmChild), null);
+                edits++;
+            }
+            previous = baseChild;
+        }
+        for (int k = baseFrom + paired; k < baseTo; k++) {
+            previous = (ASTNode) baseChildren.get(k);
+            listRewrite.remove(previous, null);
+            edits++;
+        }
+        for (int k = llmFrom + paired; k < llmTo; k++) {
+            ASTNode inserted = ASTNode.copySubtree(ast, (ASTNode) llmChildren.get(k));
+            if (previous == null) {
+                listRewrite.insertFirst(inserted, null);
+            } else {
+                listRewrite.insertAfter(inserted, previous, null);
+            }
+            previous = inserted;
+            edits++;
+        }
+        return previous;
+    }
+
+    private void replace(ASTNode base, ASTNode llm) {
+        rewriter.replace(base, ASTNode.copySubtree(ast, llm), null);
+        edits++;
+    }
+
+    private boolean isIdentical(ASTNode base, ASTNode llm) {
+        return hash(base) == hash(llm) && base.subtreeMatch(matcher, llm);
+    }
+
+    private long hash(ASTNode node) {
+        Long cached = hashes.get(node);
+        if (cached != null) {
+            return cached;
+        }
+        long h = node.getNodeType();
+        for (Object descriptor : node.structuralPropertiesForType()) {
+            StructuralPropertyDescriptor property = (StructuralPropertyDescriptor) descriptor;
+            Object value = node.getStructuralProperty(property);
+            if (property.isSimpleProperty()) {
+                h = h * 1_000_003 + Objects.hashCode(value == null ? null : value.toString());
+            } else if (property.isChildProperty()) {
+                h = h * 1_000_003 + (value == null ? 0 : hash((ASTNode) value));
+            } else {
+                List<?> children = (List<?>) value;
+                h = h * 1_000_003 + children.size();
+                for (Object child : children) {
+                    h = h * 1_000_003 + hash((ASTNode) child);
+                }
+            }
+        }
+        hashes.put(node, h);
+        return h;
+    }
+}
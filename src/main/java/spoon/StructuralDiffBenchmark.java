@@ -0,0 +1,85 @@
+package spoon;
+
+import org.eclipse.jdt.core.dom.ASTMatcher;
+import org.eclipse.jface.text.Document;
+import org.eclipse.text.edits.DeleteEdit;
+import org.eclipse.text.edits.InsertEdit;
+import org.eclipse.text.edits.ReplaceEdit;
+import org.eclipse.text.edits.TextEdit;
+
+/**
+ * Compares rewrite time and edit size of {@link ASTUpdater.UpdateMode#REPLACE} and
+ * {@link ASTUpdater.UpdateMode#STRUCTURAL_DIFF} on large methods where the LLM changed one statement.
+ */
+public class StructuralDiffBenchmark {
+    private static final int ITERATIONS = 200;
+
+    public static void main(String[] args) throws Exception {
+        int[] statementCounts = {100, 1_000, 5_000};
+        for (int statements : statementCounts) {
+            String baseCode = generateClass(statements, -1);
+            String llmCode = generateClass(statements, statements / 2);
+            for (ASTUpdater.UpdateMode mode : ASTUpdater.UpdateMode.values()) {
+                // Warm up the JIT and the parse cache so only the rewrite is measured
+                for (int i = 0; i < ITERATIONS / 4; i++) {
+                    ASTUpdater.computeEdits(baseCode, llmCode, mode);
+                }
+                long start = System.nanoTime();
+                TextEdit edits = null;
+                for (int i = 0; i < ITERATIONS; i++) {
+                    edits = ASTUpdater.computeEdits(baseCode, llmCode, mode);
+                }
+                double micros = (double) (System.nanoTime() - start) / ITERATIONS / 1_000;
+                System.out.println(String.format("%5d statements, %-15s : %10.1f us/rewrite, %4d edits, %8d chars edited, matches llm: %s",
+                        statements, mode, micros, countEdits(edits), editedChars(edits), matches(baseCode, edits, llmCode)));
+            }
+        }
+    }
+
+    private static int countEdits(TextEdit edit) {
+        int count = edit.hasChildren() ? 0 : 1;
+        for (TextEdit child : edit.getChildren()) {
+            count += countEdits(child);
+        }
+        return count;
+    }
+
+    private static long editedChars(TextEdit edit) {
+        long chars = 0;
+        if (edit instanceof ReplaceEdit) {
+            chars += edit.getLength() + ((ReplaceEdit) edit).getText().length();
+        } else if (edit instanceof InsertEdit) {
+            chars += ((InsertEdit) edit).getText().length();
+        } else if (edit instanceof DeleteEdit) {
+            chars += edit.getLength();
+        }
+        for (TextEdit child : edit.getChildren()) {
+            chars += editedChars(child);
+        }
+        return chars;
+    }
+
+    private static boolean matches(String baseCode, TextEdit edits, String llmCode) throws Exception {
+        Document document = new Document(baseCode);
+        edits.copy().apply(document);
+        return ASTUpdater.parseAST(document.get()).subtreeMatch(new ASTMatcher(), ASTUpdater.parseAST(llmCode));
+    }
+
+    private static String generateClass(int statements, int changedStatement) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("public class Pricing {\n");
+        sb.append("    public long price(int quantity, long[] levels) {\n");
+        sb.append("        long total = 0;\n");
+        for (int i = 0; i < statements; i++) {
+            if (i == changedStatement) {
+                sb.append("        total += Math.max(levels[").append(i % 16).append("], quantity) * ").append(i).append(";\n");
+            } else {
+                sb.append("        total += levels[").append(i % 16).append("] * quantity + ").append(i).append(";\n");
+            }
+        }
+        sb.append("        return total;\n");
+        sb.append("    }\n");
+        sb.append("}\n");
+        return sb.toString();
+    }
+}